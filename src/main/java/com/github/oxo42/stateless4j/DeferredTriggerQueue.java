@@ -0,0 +1,58 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * FIFO of deferred triggers and their arguments, stored interleaved in a single growable ring array
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+final class DeferredTriggerQueue<T> {
+
+    private Object[] slots = new Object[8];
+    private int head;
+    private int size;
+    boolean due; // true once the machine has transitioned since the triggers were deferred
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(T trigger, Object[] args) {
+        if (size * 2 == slots.length) {
+            grow();
+        }
+        int tail = (head + size * 2) & (slots.length - 1);
+        slots[tail] = trigger;
+        slots[tail + 1] = args;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    T peekTrigger() {
+        return (T) slots[head];
+    }
+
+    Object[] peekArgs() {
+        return (Object[]) slots[head + 1];
+    }
+
+    void remove() {
+        assert size > 0 : "queue is empty";
+        slots[head] = null;
+        slots[head + 1] = null;
+        head = (head + 2) & (slots.length - 1);
+        size--;
+    }
+
+    private void grow() {
+        Object[] grown = new Object[slots.length * 2];
+        int firstPart = slots.length - head;
+        System.arraycopy(slots, head, grown, 0, firstPart);
+        System.arraycopy(slots, 0, grown, firstPart, head);
+        slots = grown;
+        head = 0;
+    }
+}
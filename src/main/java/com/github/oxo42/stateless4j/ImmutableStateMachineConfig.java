@@ -0,0 +1,196 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A deeply immutable copy of a state machine configuration, created by {@link StateMachineConfig#toImmutable()}
+ * <p>
+ * The copied representations are linked and frozen before the super constructor assigns them to its final fields,
+ * so a reference to this configuration can be handed to other threads without synchronisation.
+ *
+ * @param <TState>   The type used to represent the states
+ * @param <TTrigger> The type used to represent the triggers that cause state transitions
+ */
+final class ImmutableStateMachineConfig<TState, TTrigger> extends StateMachineConfig<TState, TTrigger> {
+
+    private final boolean entryActionOfInitialStateEnabled;
+    private final boolean firstMatchGuardEvaluationEnabled;
+    private final boolean stateWriteCoalescingEnabled;
+    private final ForkJoinPool regionPool;
+    private final TransitionObserverIndex<TState, TTrigger> transitionObservers;
+
+    ImmutableStateMachineConfig(StateMachineConfig<TState, TTrigger> source) {
+        this(source, source.getTriggerSymbols().copy());
+    }
+
+    private ImmutableStateMachineConfig(StateMachineConfig<TState, TTrigger> source, SymbolTable<TTrigger> triggerSymbols) {
+        super(copyRepresentations(source, triggerSymbols), copyTriggerConfigurations(source),
+                source.getStateSymbols().copy(), triggerSymbols);
+        this.entryActionOfInitialStateEnabled = source.isEntryActionOfInitialStateEnabled();
+        this.firstMatchGuardEvaluationEnabled = source.isFirstMatchGuardEvaluationEnabled();
+        this.stateWriteCoalescingEnabled = source.isStateWriteCoalescingEnabled();
+        this.regionPool = source.getRegionPool();
+        this.transitionObservers = source.getObserverRegistrations() == null ? null
+                : new TransitionObserverIndex<>(source.getObserverRegistrations(), triggerSymbols.isIdentity());
+    }
+
+    private static <S, T> Map<S, StateRepresentation<S, T>> copyRepresentations(StateMachineConfig<S, T> source, SymbolTable<T> triggerSymbols) {
+        Map<StateRepresentation<S, T>, StateRepresentation<S, T>> copies = new IdentityHashMap<>();
+        for (StateRepresentation<S, T> representation : source.getRepresentations()) {
+            copies.put(representation, representation.copy(triggerSymbols));
+        }
+
+        Map<S, StateRepresentation<S, T>> result = source.getStateSymbols().isIdentity()
+                ? new IdentityHashMap<S, StateRepresentation<S, T>>(copies.size())
+                : new HashMap<S, StateRepresentation<S, T>>(copies.size() * 4 / 3 + 1);
+        for (Map.Entry<StateRepresentation<S, T>, StateRepresentation<S, T>> entry : copies.entrySet()) {
+            StateRepresentation<S, T> original = entry.getKey();
+            StateRepresentation<S, T> copy = entry.getValue();
+            if (original.getSuperstate() != null) {
+                copy.setSuperstate(copies.get(original.getSuperstate()));
+                copies.get(original.getSuperstate()).addSubstate(copy);
+            }
+            result.put(copy.getUnderlyingState(), copy);
+        }
+        for (StateRepresentation<S, T> copy : result.values()) {
+            copy.freeze();
+        }
+        return result;
+    }
+
+    private static <S, T> Map<T, TriggerWithParameters<S, T>> copyTriggerConfigurations(StateMachineConfig<S, T> source) {
+        Map<T, TriggerWithParameters<S, T>> result = source.getTriggerSymbols().isIdentity()
+                ? new IdentityHashMap<T, TriggerWithParameters<S, T>>()
+                : new HashMap<T, TriggerWithParameters<S, T>>();
+        for (TriggerWithParameters<S, T> configuration : source.getTriggerConfigurations()) {
+            result.put(configuration.getTrigger(), configuration);
+        }
+        return result;
+    }
+
+    private static IllegalStateException immutable() {
+        return new IllegalStateException("The configuration is immutable; configure a StateMachineConfig and call toImmutable() again instead.");
+    }
+
+    @Override
+    public StateMachineConfig<TState, TTrigger> toImmutable() {
+        return this;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public boolean isEntryActionOfInitialStateEnabled() {
+        return entryActionOfInitialStateEnabled;
+    }
+
+    @Override
+    public void enableEntryActionOfInitialState() {
+        throw immutable();
+    }
+
+    @Override
+    public void disableEntryActionOfInitialState() {
+        throw immutable();
+    }
+
+    @Override
+    public boolean isFirstMatchGuardEvaluationEnabled() {
+        return firstMatchGuardEvaluationEnabled;
+    }
+
+    @Override
+    public void enableFirstMatchGuardEvaluation() {
+        throw immutable();
+    }
+
+    @Override
+    public void disableFirstMatchGuardEvaluation() {
+        throw immutable();
+    }
+
+    @Override
+    public boolean isStateWriteCoalescingEnabled() {
+        return stateWriteCoalescingEnabled;
+    }
+
+    @Override
+    public void enableStateWriteCoalescing() {
+        throw immutable();
+    }
+
+    @Override
+    public void disableStateWriteCoalescing() {
+        throw immutable();
+    }
+
+    @Override
+    public ForkJoinPool getRegionPool() {
+        return regionPool;
+    }
+
+    @Override
+    public void enableParallelRegions(ForkJoinPool pool) {
+        throw immutable();
+    }
+
+    @Override
+    public void disableParallelRegions() {
+        throw immutable();
+    }
+
+    @Override
+    public void addTransitionObserver(TState source, TTrigger trigger, TState destination, Action1<Transition<TState, TTrigger>> observer) {
+        throw immutable();
+    }
+
+    @Override
+    TransitionObserverIndex<TState, TTrigger> getTransitionObservers() {
+        return transitionObservers;
+    }
+
+    @Override
+    public StateConfiguration<TState, TTrigger> configure(TState state) {
+        throw immutable();
+    }
+
+    @Override
+    public void addEdges(TState[] sources, TTrigger[] triggers, TState[] destinations) {
+        throw immutable();
+    }
+
+    @Override
+    public void loadEdges(Reader reader, char separator, Func2<String, TState> stateParser, Func2<String, TTrigger> triggerParser) {
+        throw immutable();
+    }
+
+    @Override
+    public <TArg0> TriggerWithParameters1<TArg0, TState, TTrigger> setTriggerParameters(TTrigger trigger, Class<TArg0> classe0) {
+        throw immutable();
+    }
+
+    @Override
+    public <TArg0, TArg1> TriggerWithParameters2<TArg0, TArg1, TState, TTrigger> setTriggerParameters(TTrigger trigger, Class<TArg0> classe0, Class<TArg1> classe1) {
+        throw immutable();
+    }
+
+    @Override
+    public <TArg0, TArg1, TArg2> TriggerWithParameters3<TArg0, TArg1, TArg2, TState, TTrigger> setTriggerParameters(TTrigger trigger, Class<TArg0> classe0, Class<TArg1> classe1, Class<TArg2> classe2) {
+        throw immutable();
+    }
+}
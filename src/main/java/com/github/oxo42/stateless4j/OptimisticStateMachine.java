@@ -0,0 +1,150 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func;
+import com.github.oxo42.stateless4j.transitions.Transition;
+
+import java.util.ConcurrentModificationException;
+
+/**
+ * A state machine whose state is stored externally and shared with other writers, for example other nodes, using
+ * optimistic concurrency instead of locks.
+ * <p>
+ * Each fire reads the state and its version from the store, resolves the transition, and stores the destination with
+ * a compare-and-set against the version read before any exit or entry action runs. If another writer changed the
+ * state meanwhile, the fire is retried on the fresh state, up to the configured number of attempts; no exit, entry or
+ * transition action runs for an attempt that loses the race, but its guards are evaluated again on the retry. A
+ * trigger that is ignored, deferred or unhandled in the state read stores nothing, so it is not checked against the
+ * store and its unhandled trigger action, if any, runs on the state as read. Once a transition of a fire has been
+ * stored its actions run, so a conflict on a later transition of the same run to completion, fired by those actions
+ * or by replayed deferred triggers, can no longer be retried and fails with ConcurrentModificationException.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class OptimisticStateMachine<S, T> extends StateMachine<S, T> {
+
+    private static final Conflict CONFLICT = new Conflict();
+
+    private final VersionedStateStore<S> store;
+    private final StoredState<S> stored;
+    private final int maxAttempts;
+    private int attempts; // attempts of the current fire, 0 when not firing
+    private boolean committed; // true once the current fire stored a transition
+
+    /**
+     * Construct a state machine in the stored state
+     *
+     * @param store       The external storage of the state
+     * @param config      State machine configuration
+     * @param maxAttempts The number of times a fire is attempted before failing with ConcurrentModificationException
+     */
+    public OptimisticStateMachine(VersionedStateStore<S> store, StateMachineConfig<S, T> config, int maxAttempts) {
+        this(store, new StoredState<>(store), config, maxAttempts);
+    }
+
+    private OptimisticStateMachine(VersionedStateStore<S> store, StoredState<S> stored, StateMachineConfig<S, T> config, int maxAttempts) {
+        super(stored.current.getState(), stored, stored, config);
+        if (maxAttempts <= 0) {
+            throw new IllegalStateException("The number of attempts must be positive: " + maxAttempts);
+        }
+        this.store = store;
+        this.stored = stored;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * The version of the state as last read or stored by this machine
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return stored.current.getVersion();
+    }
+
+    @Override
+    protected void publicFire(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (attempts > 0) {
+            super.publicFire(trigger, count, arg0, arg1, arg2, args);
+            return;
+        }
+        try {
+            for (attempts = 1; ; attempts++) {
+                stored.current = store.read();
+                stored.firing = true;
+                committed = false;
+                try {
+                    super.publicFire(trigger, count, arg0, arg1, arg2, args);
+                    return;
+                } catch (RuntimeException e) {
+                    if (e != CONFLICT) {
+                        throw e;
+                    }
+                    if (attempts == maxAttempts) {
+                        throw new ConcurrentModificationException("Firing '" + trigger + "' lost " + attempts
+                                + " races for the stored state; last read " + stored.current + ".");
+                    }
+                } finally {
+                    stored.firing = false;
+                }
+            }
+        } finally {
+            attempts = 0;
+        }
+    }
+
+    @Override
+    protected void commitTransition(Transition<S, T> transition) {
+        VersionedState<S> next = store.compareAndSet(stored.current.getVersion(), transition.getDestination());
+        if (next == null) {
+            if (committed) {
+                throw new ConcurrentModificationException("The stored state changed while the actions of a committed transition ran; '"
+                        + transition.getTrigger() + "' cannot be retried.");
+            }
+            throw CONFLICT;
+        }
+        stored.current = next;
+        committed = true;
+    }
+
+    /**
+     * Thrown to abandon an attempt that lost the race for the stored state; shared, so it has no stack trace
+     */
+    private static final class Conflict extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Conflict() {
+            super("version conflict", null, false, false);
+        }
+    }
+
+    /**
+     * The state accessor and mutator: the state is read from the store outside fires, and from the latest read or
+     * stored version during them. Writes have already been stored by {@link #commitTransition(Transition)}.
+     */
+    private static final class StoredState<S> implements Func<S>, Action1<S> {
+
+        private final VersionedStateStore<S> store;
+        VersionedState<S> current;
+        boolean firing;
+
+        StoredState(VersionedStateStore<S> store) {
+            this.store = store;
+            this.current = store.read();
+        }
+
+        @Override
+        public S call() {
+            if (!firing) {
+                current = store.read();
+            }
+            return current.getState();
+        }
+
+        @Override
+        public void doIt(S state) {
+            assert !firing || state.equals(current.getState()) : "state was not committed";
+        }
+    }
+}
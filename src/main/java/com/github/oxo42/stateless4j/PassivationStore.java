@@ -0,0 +1,26 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * Storage for the states of machines evicted from a {@link StateMachineRegistry}
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ */
+public interface PassivationStore<K, S> {
+
+    /**
+     * Load the state of a machine that is about to be rehydrated
+     *
+     * @param key The key of the machine
+     * @return The saved state, or null if the machine was never saved
+     */
+    S load(K key);
+
+    /**
+     * Save the state of a machine that is being evicted
+     *
+     * @param key   The key of the machine
+     * @param state The current state of the machine
+     */
+    void save(K key, S state);
+}
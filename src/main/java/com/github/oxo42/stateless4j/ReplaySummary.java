@@ -0,0 +1,62 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate outcome of a {@link TriggerLogReplay}
+ *
+ * @param <S> The type used to represent the states
+ */
+public class ReplaySummary<S> {
+
+    private final Map<S, Long> finalStateCounts;
+    private long machineCount;
+    private long triggerCount;
+    private long transitionCount;
+
+    ReplaySummary() {
+        finalStateCounts = new HashMap<>();
+    }
+
+    void add(S finalState, long triggers, long transitions) {
+        Long count = finalStateCounts.get(finalState);
+        finalStateCounts.put(finalState, count == null ? 1L : count + 1);
+        machineCount++;
+        triggerCount += triggers;
+        transitionCount += transitions;
+    }
+
+    ReplaySummary<S> merge(ReplaySummary<S> other) {
+        for (Map.Entry<S, Long> entry : other.finalStateCounts.entrySet()) {
+            Long count = finalStateCounts.get(entry.getKey());
+            finalStateCounts.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+        }
+        machineCount += other.machineCount;
+        triggerCount += other.triggerCount;
+        transitionCount += other.transitionCount;
+        return this;
+    }
+
+    /**
+     * The number of machines in each state after the replay
+     *
+     * @return The number of machines by state
+     */
+    public Map<S, Long> getFinalStateCounts() {
+        return Collections.unmodifiableMap(finalStateCounts);
+    }
+
+    public long getMachineCount() {
+        return machineCount;
+    }
+
+    public long getTriggerCount() {
+        return triggerCount;
+    }
+
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map for a few entries, held as alternating keys and values in one exactly sized array and searched linearly.
+ * Most states handle a handful of triggers, for which this is several times smaller than a HashMap and as fast.
+ * Entries cannot be removed, and null keys and values are not supported.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+final class SmallArrayMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Beyond this many entries, a hash map is faster
+     */
+    static final int MAX_SIZE = 8;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final boolean identity;
+    private Object[] table = EMPTY;
+
+    /**
+     * @param identity Whether keys are compared by identity rather than equals
+     */
+    SmallArrayMap(boolean identity) {
+        this.identity = identity;
+    }
+
+    @Override
+    public int size() {
+        return table.length >> 1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) table[index + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(K key, V value) {
+        assert key != null : "key is null";
+        assert value != null : "value is null";
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = (V) table[index + 1];
+            table[index + 1] = value;
+            return previous;
+        }
+        Object[] grown = new Object[table.length + 2];
+        System.arraycopy(table, 0, grown, 0, table.length);
+        grown[table.length] = key;
+        grown[table.length + 1] = value;
+        table = grown;
+        return null;
+    }
+
+    private int indexOf(Object key) {
+        Object[] t = table;
+        for (int i = 0; i < t.length; i += 2) {
+            if (t[i] == key || !identity && t[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private final Object[] t = table;
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < t.length;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public Entry<K, V> next() {
+                        if (next >= t.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> entry = new SimpleImmutableEntry<>((K) t[next], (V) t[next + 1]);
+                        next += 2;
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SmallArrayMap.this.size();
+            }
+        };
+    }
+}
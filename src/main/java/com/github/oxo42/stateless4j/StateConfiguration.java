@@ -3,8 +3,12 @@ package com.github.oxo42.stateless4j;
 import com.github.oxo42.stateless4j.delegates.*;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.timers.TimedTrigger;
+import com.github.oxo42.stateless4j.timers.TimerWheel;
 import com.github.oxo42.stateless4j.triggers.*;
 
+import java.util.concurrent.TimeUnit;
+
 public class StateConfiguration<S, T> {
 
     private static final FuncBoolean NO_GUARD = new FuncBoolean() {
@@ -48,6 +52,26 @@ public class StateConfiguration<S, T> {
         return publicPermitIf(trigger, destinationState, guard);
     }
 
+    /**
+     * Accept the specified trigger and transition to the destination state, and fire the trigger automatically once
+     * the configured state has been occupied for the given delay.
+     * <p>
+     * The timeout is armed when the state is entered and cancelled when it is exited. Timeouts only run for state
+     * machines that have been given a {@link TimerWheel} through {@link StateMachine#useTimerWheel(TimerWheel)}.
+     *
+     * @param trigger          The accepted trigger
+     * @param destinationState The state that the trigger will cause a transition to
+     * @param delay            Time the configured state must be occupied before the trigger fires
+     * @param unit             Unit of delay
+     * @return The receiver
+     */
+    public StateConfiguration<S, T> permitAfter(T trigger, S destinationState, long delay, TimeUnit unit) {
+        assert unit != null : "unit is null";
+        permit(trigger, destinationState);
+        representation.addTimeout(new TimedTrigger<>(trigger, unit.toNanos(delay)));
+        return this;
+    }
+
     /**
      * Accept the specified trigger with single parameter and transition to the destination state.
      * @param trigger The accepted trigger with parameters
@@ -59,11 +83,11 @@ public class StateConfiguration<S, T> {
      */
     public <TArg0> StateConfiguration<S, T> permitIf(TriggerWithParameters1<TArg0, S, T> trigger, S destinationState, final Func2<TArg0, Boolean> guard) {
         enforceNotIdentityTransition(destinationState);
-        return publicPermitIf(trigger.getTrigger(), destinationState, new Func2<Object[], Boolean>() {
+        return publicPermitIf(trigger.getTrigger(), destinationState, new ArgumentsFunc<Boolean>() {
             @SuppressWarnings("unchecked")
             @Override
-            public Boolean call(Object[] args) {
-                return guard.call((TArg0) args[0]);
+            public Boolean call(Object arg0, Object arg1, Object arg2) {
+                return guard.call((TArg0) arg0);
             }
         });
     }
@@ -80,11 +104,11 @@ public class StateConfiguration<S, T> {
      */
     public <TArg0, TArg1> StateConfiguration<S, T> permitIf(TriggerWithParameters2<TArg0, TArg1, S, T> trigger, S destinationState, final Func3<TArg0, TArg1, Boolean> guard) {
         enforceNotIdentityTransition(destinationState);
-        return publicPermitIf(trigger.getTrigger(), destinationState, new Func2<Object[], Boolean>() {
+        return publicPermitIf(trigger.getTrigger(), destinationState, new ArgumentsFunc<Boolean>() {
             @SuppressWarnings("unchecked")
             @Override
-            public Boolean call(Object[] args) {
-                return guard.call((TArg0) args[0], (TArg1) args[1]);
+            public Boolean call(Object arg0, Object arg1, Object arg2) {
+                return guard.call((TArg0) arg0, (TArg1) arg1);
             }
         });
     }
@@ -102,11 +126,11 @@ public class StateConfiguration<S, T> {
      */
     public <TArg0, TArg1, TArg2> StateConfiguration<S, T> permitIf(TriggerWithParameters3<TArg0, TArg1, TArg2, S, T> trigger, S destinationState, final Func4<TArg0, TArg1, TArg2, Boolean> guard) {
         enforceNotIdentityTransition(destinationState);
-        return publicPermitIf(trigger.getTrigger(), destinationState, new Func2<Object[], Boolean>() {
+        return publicPermitIf(trigger.getTrigger(), destinationState, new ArgumentsFunc<Boolean>() {
             @SuppressWarnings("unchecked")
             @Override
-            public Boolean call(Object[] args) {
-                return guard.call((TArg0) args[0], (TArg1) args[1], (TArg2) args[2]);
+            public Boolean call(Object arg0, Object arg1, Object arg2) {
+                return guard.call((TArg0) arg0, (TArg1) arg1, (TArg2) arg2);
             }
         });
     }
@@ -159,7 +183,9 @@ public class StateConfiguration<S, T> {
      */
     public StateConfiguration<S, T> ignoreIf(T trigger, FuncBoolean guard) {
         assert guard != null : "guard is null";
-        representation.addTriggerBehaviour(new IgnoredTriggerBehaviour<S, T>(trigger, guard));
+        representation.addTriggerBehaviour(guard == NO_GUARD
+                ? new IgnoredTriggerBehaviour<S, T>(trigger)
+                : new IgnoredTriggerBehaviour<S, T>(trigger, guard));
         return this;
     }
 
@@ -174,11 +200,11 @@ public class StateConfiguration<S, T> {
     public <TArg0> StateConfiguration<S, T> ignoreIf(TriggerWithParameters1<TArg0, S, T> trigger, final Func2<TArg0, Boolean> guard) {
         assert guard != null : "guard is null";
         representation.addTriggerBehaviour(new IgnoredTriggerBehaviour<S, T>(trigger.getTrigger(),
-                new Func2<Object[], Boolean>() {
+                new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0);
                     }
                 }));
         return this;
@@ -195,11 +221,11 @@ public class StateConfiguration<S, T> {
      */
     public <TArg0, TArg1> StateConfiguration<S, T> ignoreIf(TriggerWithParameters2<TArg0, TArg1, S, T> trigger, final Func3<TArg0, TArg1, Boolean> guard) {
         representation.addTriggerBehaviour(new IgnoredTriggerBehaviour<S, T>(trigger.getTrigger(),
-                new Func2<Object[], Boolean>() {
+                new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0], (TArg1)args[1]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0, (TArg1) arg1);
                     }
                 }));
         return this;
@@ -217,16 +243,44 @@ public class StateConfiguration<S, T> {
      */
     public <TArg0, TArg1, TArg2> StateConfiguration<S, T> ignoreIf(TriggerWithParameters3<TArg0, TArg1, TArg2, S, T> trigger, final Func4<TArg0, TArg1, TArg2, Boolean> guard) {
         representation.addTriggerBehaviour(new IgnoredTriggerBehaviour<S, T>(trigger.getTrigger(),
-                new Func2<Object[], Boolean>() {
+                new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0], (TArg1)args[1], (TArg2)args[2]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0, (TArg1) arg1, (TArg2) arg2);
                     }
                 }));
         return this;
     }
 
+    /**
+     * Defer the specified trigger when in the configured state. A deferred trigger is kept by the state machine
+     * along with its arguments, and fired again once the fire that causes the next transition has run to completion,
+     * if the state machine is then in a state that does not defer it. A replayed trigger that is no longer handled
+     * is dropped, see {@link StateMachine#onUnhandledDeferredTrigger}
+     *
+     * @param trigger The trigger to defer
+     * @return The receiver
+     */
+    public StateConfiguration<S, T> defer(T trigger) {
+        return deferIf(trigger, NO_GUARD);
+    }
+
+    /**
+     * Defer the specified trigger when in the configured state, if the guard returns true
+     *
+     * @param trigger The trigger to defer
+     * @param guard   Function that must return true in order for the trigger to be deferred
+     * @return The receiver
+     */
+    public StateConfiguration<S, T> deferIf(T trigger, FuncBoolean guard) {
+        assert guard != null : "guard is null";
+        representation.addTriggerBehaviour(guard == NO_GUARD
+                ? new DeferredTriggerBehaviour<S, T>(trigger)
+                : new DeferredTriggerBehaviour<S, T>(trigger, guard));
+        return this;
+    }
+
     /**
      * Specify an action that will execute when transitioning into the configured state
      *
@@ -235,12 +289,8 @@ public class StateConfiguration<S, T> {
      */
     public StateConfiguration<S, T> onEntry(final Action entryAction) {
         assert entryAction != null : "entryAction is null";
-        return onEntry(new Action1<Transition<S, T>>() {
-            @Override
-            public void doIt(Transition<S, T> t) {
-                entryAction.doIt();
-            }
-        });
+        representation.addEntryAction(entryAction);
+        return this;
     }
 
     /**
@@ -249,14 +299,9 @@ public class StateConfiguration<S, T> {
      * @param entryAction Action to execute, providing details of the transition
      * @return The receiver
      */
-    public StateConfiguration<S, T> onEntry(final Action1<Transition<S, T>> entryAction) {
+    public StateConfiguration<S, T> onEntry(Action1<Transition<S, T>> entryAction) {
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(new Action2<Transition<S, T>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T> arg1, Object[] arg2) {
-                entryAction.doIt(arg1);
-            }
-        });
+        representation.addEntryAction(entryAction);
         return this;
     }
 
@@ -267,14 +312,10 @@ public class StateConfiguration<S, T> {
      * @param entryAction Action to execute
      * @return The receiver
      */
-    public StateConfiguration<S, T> onEntryFrom(T trigger, final Action entryAction) {
+    public StateConfiguration<S, T> onEntryFrom(T trigger, Action entryAction) {
         assert entryAction != null : "entryAction is null";
-        return onEntryFrom(trigger, new Action1<Transition<S, T>>() {
-            @Override
-            public void doIt(Transition<S, T> arg1) {
-                entryAction.doIt();
-            }
-        });
+        representation.addEntryAction(trigger, entryAction);
+        return this;
     }
 
     /**
@@ -284,14 +325,9 @@ public class StateConfiguration<S, T> {
      * @param entryAction Action to execute, providing details of the transition
      * @return The receiver
      */
-    public StateConfiguration<S, T> onEntryFrom(T trigger, final Action1<Transition<S, T>> entryAction) {
+    public StateConfiguration<S, T> onEntryFrom(T trigger, Action1<Transition<S, T>> entryAction) {
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger, new Action2<Transition<S, T>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T> arg1, Object[] arg2) {
-                entryAction.doIt(arg1);
-            }
-        });
+        representation.addEntryAction(trigger, entryAction);
         return this;
     }
 
@@ -305,13 +341,16 @@ public class StateConfiguration<S, T> {
      * @return The receiver
      */
     public <TArg0> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters1<TArg0, S, T> trigger, final Action1<TArg0> entryAction, final Class<TArg0> classe0) {
+        assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        return onEntryFrom(trigger, new Action2<TArg0, Transition<S, T>>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
+            @SuppressWarnings("unchecked")
             @Override
-            public void doIt(TArg0 arg1, Transition<S, T> arg2) {
-                entryAction.doIt(arg1);
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
+                entryAction.doIt((TArg0) arg0);
             }
-        }, classe0);
+        });
+        return this;
     }
 
     /**
@@ -326,11 +365,11 @@ public class StateConfiguration<S, T> {
     public <TArg0> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters1<TArg0, S, T> trigger, final Action2<TArg0, Transition<S, T>> entryAction, final Class<TArg0> classe0) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T> t, Object[] arg2) {
-                entryAction.doIt((TArg0) arg2[0], t);
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
+                entryAction.doIt((TArg0) arg0, t);
             }
         });
         return this;
@@ -348,13 +387,18 @@ public class StateConfiguration<S, T> {
      * @return The receiver
      */
     public <TArg0, TArg1> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters2<TArg0, TArg1, S, T> trigger, final Action2<TArg0, TArg1> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1) {
+        assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        return onEntryFrom(trigger, new Action3<TArg0, TArg1, Transition<S, T>>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
+            @SuppressWarnings("unchecked")
             @Override
-            public void doIt(TArg0 a0, TArg1 a1, Transition<S, T> t) {
-                entryAction.doIt(a0, a1);
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
+                entryAction.doIt(
+                        (TArg0) arg0,
+                        (TArg1) arg1);
             }
-        }, classe0, classe1);
+        });
+        return this;
     }
 
     /**
@@ -371,13 +415,13 @@ public class StateConfiguration<S, T> {
     public <TArg0, TArg1> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters2<TArg0, TArg1, S, T> trigger, final Action3<TArg0, TArg1, Transition<S, T>> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T> t, Object[] args) {
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
                 entryAction.doIt(
-                        (TArg0) args[0],
-                        (TArg1) args[1], t);
+                        (TArg0) arg0,
+                        (TArg1) arg1, t);
             }
         });
         return this;
@@ -397,13 +441,19 @@ public class StateConfiguration<S, T> {
      * @return The receiver
      */
     public <TArg0, TArg1, TArg2> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters3<TArg0, TArg1, TArg2, S, T> trigger, final Action3<TArg0, TArg1, TArg2> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1, final Class<TArg2> classe2) {
+        assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        return onEntryFrom(trigger, new Action4<TArg0, TArg1, TArg2, Transition<S, T>>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
+            @SuppressWarnings("unchecked")
             @Override
-            public void doIt(TArg0 a0, TArg1 a1, TArg2 a2, Transition<S, T> t) {
-                entryAction.doIt(a0, a1, a2);
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
+                entryAction.doIt(
+                        (TArg0) arg0,
+                        (TArg1) arg1,
+                        (TArg2) arg2);
             }
-        }, classe0, classe1, classe2);
+        });
+        return this;
     }
 
     /**
@@ -422,14 +472,14 @@ public class StateConfiguration<S, T> {
     public <TArg0, TArg1, TArg2> StateConfiguration<S, T> onEntryFrom(TriggerWithParameters3<TArg0, TArg1, TArg2, S, T> trigger, final Action4<TArg0, TArg1, TArg2, Transition<S, T>> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1, final Class<TArg2> classe2) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new StateRepresentation.ArgumentsAction<S, T>() {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T> t, Object[] args) {
+            public void doIt(Transition<S, T> t, Object arg0, Object arg1, Object arg2) {
                 entryAction.doIt(
-                        (TArg0) args[0],
-                        (TArg1) args[1],
-                        (TArg2) args[2], t);
+                        (TArg0) arg0,
+                        (TArg1) arg1,
+                        (TArg2) arg2, t);
             }
         });
         return this;
@@ -441,14 +491,10 @@ public class StateConfiguration<S, T> {
      * @param exitAction Action to execute
      * @return The receiver
      */
-    public StateConfiguration<S, T> onExit(final Action exitAction) {
+    public StateConfiguration<S, T> onExit(Action exitAction) {
         assert exitAction != null : "exitAction is null";
-        return onExit(new Action1<Transition<S, T>>() {
-            @Override
-            public void doIt(Transition<S, T> arg1) {
-                exitAction.doIt();
-            }
-        });
+        representation.addExitAction(exitAction);
+        return this;
     }
 
     /**
@@ -482,6 +528,23 @@ public class StateConfiguration<S, T> {
         return this;
     }
 
+    /**
+     * Adds an orthogonal region to the configured state
+     * <p>
+     * While the state machine is in the configured state, or one of its substates, each region is in a state of its
+     * own, starting with the supplied initial state. The states of a region are configured like any other state, on
+     * the same configuration, but must not be substates of the configured state. Fired triggers are dispatched to
+     * every region that can handle them; only triggers that no region handles are handled by the configured state and
+     * its superstates. Leaving the configured state exits all of its regions.
+     *
+     * @param initialState The initial state of the region
+     * @return The receiver
+     */
+    public StateConfiguration<S, T> region(S initialState) {
+        representation.addRegion(initialState);
+        return this;
+    }
+
     /**
      * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
      * function
@@ -549,9 +612,9 @@ public class StateConfiguration<S, T> {
      */
     public StateConfiguration<S, T> permitDynamicIf(final T trigger, final Func<S> destinationStateSelector, final FuncBoolean guard) {
         assert destinationStateSelector != null : "destinationStateSelector is null";
-        return publicPermitDynamicIf(trigger, new Func2<Object[], S>() {
+        return publicPermitDynamicIf(trigger, new ArgumentsFunc<S>() {
             @Override
-            public S call(Object[] arg0) {
+            public S call(Object arg0, Object arg1, Object arg2) {
                 return destinationStateSelector.call();
             }
         }, guard);
@@ -571,11 +634,11 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public S call(Object[] args) {
-                        return destinationStateSelector.call((TArg0) args[0]);
+                    public S call(Object arg0, Object arg1, Object arg2) {
+                        return destinationStateSelector.call((TArg0) arg0);
 
                     }
                 }, guard);
@@ -595,19 +658,19 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public S call(Object[] args) {
-                        return destinationStateSelector.call((TArg0) args[0]);
+                    public S call(Object arg0, Object arg1, Object arg2) {
+                        return destinationStateSelector.call((TArg0) arg0);
 
                     }
                 },
-                new Func2<Object[], Boolean>() {
+                new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0);
                     }
                 }
         );
@@ -628,14 +691,14 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(Object[] args) {
+                    public S call(Object arg0, Object arg1, Object arg2) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1]);
+                                (TArg0) arg0,
+                                (TArg1) arg1);
                     }
                 }, guard);
     }
@@ -655,21 +718,21 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(Object[] args) {
+                    public S call(Object arg0, Object arg1, Object arg2) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1]);
+                                (TArg0) arg0,
+                                (TArg1) arg1);
                     }
                 },
-                new Func2<Object[], Boolean>() {
+                new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0], (TArg1)args[1]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0, (TArg1) arg1);
                     }
                 }
         );
@@ -692,15 +755,15 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(Object[] args) {
+                    public S call(Object arg0, Object arg1, Object arg2) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1],
-                                (TArg2) args[2]
+                                (TArg0) arg0,
+                                (TArg1) arg1,
+                                (TArg2) arg2
                         );
                     }
                 }, guard);
@@ -723,22 +786,22 @@ public class StateConfiguration<S, T> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func2<Object[], S>() {
+                trigger.getTrigger(), new ArgumentsFunc<S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(Object[] args) {
+                    public S call(Object arg0, Object arg1, Object arg2) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1],
-                                (TArg2) args[2]
+                                (TArg0) arg0,
+                                (TArg1) arg1,
+                                (TArg2) arg2
                         );
                     }
-                }, new Func2<Object[], Boolean>() {
+                }, new ArgumentsFunc<Boolean>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public Boolean call(Object[] args) {
-                        return guard.call((TArg0)args[0], (TArg1)args[1], (TArg2)args[2]);
+                    public Boolean call(Object arg0, Object arg1, Object arg2) {
+                        return guard.call((TArg0) arg0, (TArg1) arg1, (TArg2) arg2);
                     }
                 }
         );
@@ -822,7 +885,9 @@ public class StateConfiguration<S, T> {
 
     StateConfiguration<S, T> publicPermitIf(T trigger, S destinationState, FuncBoolean guard) {
         assert guard != null : "guard is null";
-        representation.addTriggerBehaviour(new TransitioningTriggerBehaviour<>(trigger, destinationState, guard));
+        representation.addTriggerBehaviour(guard == NO_GUARD
+                ? new TransitioningTriggerBehaviour<S, T>(trigger, destinationState)
+                : new TransitioningTriggerBehaviour<>(trigger, destinationState, guard));
         return this;
     }
 
@@ -839,7 +904,9 @@ public class StateConfiguration<S, T> {
     StateConfiguration<S, T> publicPermitDynamicIf(T trigger, Func2<Object[], S> destinationStateSelector, FuncBoolean guard) {
         assert destinationStateSelector != null : "destinationStateSelector is null";
         assert guard != null : "guard is null";
-        representation.addTriggerBehaviour(new DynamicTriggerBehaviour<>(trigger, destinationStateSelector, guard));
+        representation.addTriggerBehaviour(guard == NO_GUARD
+                ? new DynamicTriggerBehaviour<S, T>(trigger, destinationStateSelector)
+                : new DynamicTriggerBehaviour<>(trigger, destinationStateSelector, guard));
         return this;
     }
 
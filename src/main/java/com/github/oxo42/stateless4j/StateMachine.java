@@ -1,15 +1,28 @@
 package com.github.oxo42.stateless4j;
 
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
 import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Action2;
 import com.github.oxo42.stateless4j.delegates.Func;
+import com.github.oxo42.stateless4j.reactive.TransitionRingBuffer;
+import com.github.oxo42.stateless4j.timers.TimedTrigger;
+import com.github.oxo42.stateless4j.timers.Timeout;
+import com.github.oxo42.stateless4j.timers.TimerWheel;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.triggers.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Models behaviour as transitions between a finite set of states
@@ -19,13 +32,12 @@ import java.util.List;
  */
 public class StateMachine<S, T> {
 
-    protected final StateMachineConfig<S, T> config;
-    protected final Func<S> stateAccessor;
-    protected final Action1<S> stateMutator;
-    private final Logger logger = LoggerFactory.getLogger(getClass());
-    protected Action2<S, T> unhandledTriggerAction = new Action2<S, T>() {
+    private static final Logger logger = LoggerFactory.getLogger(StateMachine.class);
+    private static final Object[] NO_ARGS = new Object[0];
+    @SuppressWarnings("rawtypes")
+    private static final Action2 THROW_ON_UNHANDLED_TRIGGER = new Action2<Object, Object>() {
 
-        public void doIt(S state, T trigger) {
+        public void doIt(Object state, Object trigger) {
             throw new IllegalStateException(
                     String.format(
                             "No valid leaving transitions are permitted from state '%s' for trigger '%s'. Consider ignoring the trigger.",
@@ -34,6 +46,49 @@ public class StateMachine<S, T> {
         }
 
     };
+    @SuppressWarnings("rawtypes")
+    private static final Action2 DROP_UNHANDLED_DEFERRED_TRIGGER = new Action2<Object, Object>() {
+
+        public void doIt(Object state, Object trigger) {
+            logger.warn("Dropped deferred trigger {}, which is not handled in state {}", trigger, state);
+        }
+
+    };
+
+    protected StateMachineConfig<S, T> config;
+    protected final Func<S> stateAccessor; // null when the state is held by the machine itself
+    protected final Action1<S> stateMutator; // null when the state is held by the machine itself
+    private S state; // the state, unless it is stored externally
+    @SuppressWarnings("unchecked")
+    protected Action2<S, T> unhandledTriggerAction = THROW_ON_UNHANDLED_TRIGGER;
+    private TimerWheel timerWheel;
+    private List<StateTimeout> armedTimeouts; // null until a timeout is armed
+    private StateTimeout spareTimeouts; // cancelled and expired timeouts, reused to arm timeouts without allocating
+    private List<StateTimeout> dueTimeouts; // expired during a fire of this top-level machine, in this machine or its regions
+    private DeferredTriggerQueue<T> deferredTriggers; // null until a trigger is deferred
+    @SuppressWarnings("unchecked")
+    private Action2<S, T> unhandledDeferredTriggerAction = DROP_UNHANDLED_DEFERRED_TRIGGER;
+    private StateRepresentation<S, T> regionOwner; // state whose orthogonal regions are active, null if none
+    private List<StateMachine<S, T>> regions;
+    private StateMachine<S, T> parent; // the machine this is an orthogonal region of, null for a top-level machine
+    private StateMachineConfigHolder<S, T> configHolder; // null unless the configuration can be reloaded
+    private long configVersion;
+    private boolean firing; // true during the outermost fire, which owns the state read below
+    private S firingState; // the state while firing, read from the accessor once when the fire starts
+    private boolean firingStateChanged; // true if firingState must still be written to the mutator
+    private boolean entryAndExitActionsEnabled = true;
+    private long transitionCount;
+    // inline caches of the fire path, valid for cacheConfig until it is modified; states and triggers are compared by identity
+    private StateMachineConfig<S, T> cacheConfig;
+    private int cacheModificationCount;
+    private S cachedState;
+    private StateRepresentation<S, T> cachedRepresentation;
+    private T cachedTrigger;
+    private int cachedTriggerId;
+    private TriggerWithParameters<S, T> cachedTriggerConfiguration;
+    private List<Action1<Transition<S, T>>> transitionListeners; // shared with the orthogonal regions, null until a listener is added
+    private Publication<S, T> publication; // shared with the orthogonal regions, null unless transitions are published
+    private ReentrantLock parallelLock; // serialises timers, listeners and observers while regions fire in parallel, null otherwise
 
     /**
      * Construct a state machine
@@ -51,25 +106,70 @@ public class StateMachine<S, T> {
      * @param config       State machine configuration
      */
     public StateMachine(S initialState, StateMachineConfig<S, T> config) {
-        this.config = config;
-        final StateReference<S, T> reference = new StateReference<>();
-        reference.setState(initialState);
-        stateAccessor = new Func<S>() {
-            @Override
-            public S call() {
-                return reference.getState();
-            }
-        };
-        stateMutator = new Action1<S>() {
-            @Override
-            public void doIt(S s) {
-                reference.setState(s);
-            }
-        };
-        if (config.isEntryActionOfInitialStateEnabled()) {
-            Transition<S,T> initialTransition = new Transition<>(initialState, initialState, null);
-            getCurrentRepresentation().enter(initialTransition);
+        this(config, initialState);
+        enterInitialState(initialState);
+    }
+
+    /**
+     * Execute the entry actions of the initial state if the configuration enables them, and start its orthogonal
+     * regions
+     */
+    private void enterInitialState(S initialState) {
+        boolean runEntryActions = config.isEntryActionOfInitialStateEnabled();
+        StateRepresentation<S, T> representation = getCurrentRepresentation();
+        if (!runEntryActions && representation.getRegions().isEmpty() && representation.getSuperstate() == null) {
+            return; // nothing to do, most machines are created in a simple state
         }
+        Transition<S, T> initialTransition = new Transition<>(initialState, initialState, null);
+        if (runEntryActions) {
+            representation.enter(initialTransition, 0, null, null, null, NO_ARGS);
+        }
+        startRegions(initialTransition, 0, null, null, null, NO_ARGS, runEntryActions);
+    }
+
+    /**
+     * Construct a state machine that resumes in a state it was left in, for example when it is loaded from storage:
+     * unlike the constructors, no entry action is executed, even if the configuration enables the entry action of
+     * the initial state. Orthogonal regions are started in their initial states, also without entry actions.
+     *
+     * @param state  The state to resume in
+     * @param config State machine configuration
+     * @return The state machine
+     */
+    public static <S, T> StateMachine<S, T> resume(S state, StateMachineConfig<S, T> config) {
+        StateMachine<S, T> stateMachine = new StateMachine<>(config, state);
+        stateMachine.startRegions(new Transition<S, T>(state, state, null), 0, null, null, null, NO_ARGS, false);
+        return stateMachine;
+    }
+
+    /**
+     * Construct a state machine that switches to the latest version of the configuration held by the holder each
+     * time a trigger is fired
+     *
+     * @param initialState The initial state
+     * @param configHolder Holder of the current configuration
+     */
+    public StateMachine(S initialState, StateMachineConfigHolder<S, T> configHolder) {
+        this(initialState, configHolder.current());
+        this.configHolder = configHolder;
+    }
+
+    private StateMachine(S initialState, StateMachineConfigHolder.Version<S, T> version) {
+        this(initialState, version.config);
+        this.configVersion = version.number;
+    }
+
+    /**
+     * Construct a state machine without executing any entry action, or starting orthogonal regions
+     *
+     * @param config       State machine configuration
+     * @param initialState The initial state
+     */
+    private StateMachine(StateMachineConfig<S, T> config, S initialState) {
+        this.config = config;
+        this.stateAccessor = null;
+        this.stateMutator = null;
+        this.state = initialState;
     }
 
     /**
@@ -84,6 +184,26 @@ public class StateMachine<S, T> {
         this.stateAccessor = stateAccessor;
         this.stateMutator = stateMutator;
         stateMutator.doIt(initialState);
+        startRegions(new Transition<S, T>(initialState, initialState, null), 0, null, null, null, NO_ARGS, false);
+    }
+
+    /**
+     * Construct a state machine with external state storage that switches to the latest version of the
+     * configuration held by the holder each time a trigger is fired
+     *
+     * @param initialState  The initial state
+     * @param stateAccessor State accessor
+     * @param stateMutator  State mutator
+     * @param configHolder  Holder of the current configuration
+     */
+    public StateMachine(S initialState, Func<S> stateAccessor, Action1<S> stateMutator, StateMachineConfigHolder<S, T> configHolder) {
+        this(initialState, stateAccessor, stateMutator, configHolder.current(), configHolder);
+    }
+
+    private StateMachine(S initialState, Func<S> stateAccessor, Action1<S> stateMutator, StateMachineConfigHolder.Version<S, T> version, StateMachineConfigHolder<S, T> configHolder) {
+        this(initialState, stateAccessor, stateMutator, version.config);
+        this.configHolder = configHolder;
+        this.configVersion = version.number;
     }
 
     public StateConfiguration<S, T> configure(S state) {
@@ -100,25 +220,185 @@ public class StateMachine<S, T> {
      * @return The current state
      */
     public S getState() {
-        return stateAccessor.call();
+        if (firing) {
+            return firingState;
+        }
+        return stateAccessor == null ? state : stateAccessor.call();
     }
 
     private void setState(S value) {
-        stateMutator.doIt(value);
+        if (firing) {
+            firingState = value;
+            if (config.isStateWriteCoalescingEnabled()) {
+                firingStateChanged = true;
+                return;
+            }
+        }
+        writeState(value);
+    }
+
+    private void writeState(S value) {
+        if (stateMutator == null) {
+            state = value;
+        } else {
+            stateMutator.doIt(value);
+        }
+    }
+
+    /**
+     * Return to an initial state so that the machine can be reused, for example from a pool, instead of creating
+     * another one. Timeouts are cancelled and deferred triggers discarded; orthogonal regions are stopped without
+     * executing their exit actions, then started again as when the machine was constructed. The unhandled trigger
+     * action, transition listeners and timer wheel are kept; the transition count restarts at zero.
+     *
+     * @param initialState The state to start again from
+     */
+    public void reset(S initialState) {
+        if (firing) {
+            throw new IllegalStateException("A state machine cannot be reset while a trigger is being fired.");
+        }
+        TimerWheel wheel = timerWheel;
+        if (wheel != null) {
+            useTimerWheel(null);
+        }
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                if (region.timerWheel != null) {
+                    region.useTimerWheel(null);
+                }
+            }
+            regionOwner = null;
+            regions = null;
+        }
+        deferredTriggers = null;
+        transitionCount = 0;
+        writeState(initialState);
+        if (stateMutator == null) {
+            enterInitialState(initialState);
+        } else {
+            startRegions(new Transition<S, T>(initialState, initialState, null), 0, null, null, null, NO_ARGS, false);
+        }
+        if (wheel != null) {
+            useTimerWheel(wheel);
+        }
     }
 
     /**
-     * The currently-permissible trigger values.
+     * The currently-permissible trigger values. A trigger is permitted if the guard of any of its behaviours is met,
+     * as with first match guard evaluation; without it, firing a trigger whose guards overlap still fails.
      *
      * @return The currently-permissible trigger values
      */
     public List<T> getPermittedTriggers() {
-        return getCurrentRepresentation().getPermittedTriggers();
+        List<T> permitted = getCurrentRepresentation().getPermittedTriggers();
+        if (regions == null) {
+            return permitted;
+        }
+        Set<T> result = new LinkedHashSet<>(permitted);
+        for (StateMachine<S, T> region : regions) {
+            result.addAll(region.getPermittedTriggers());
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * The currently-permissible triggers, as a mask with the bit of the ordinal of each permitted trigger set. Guards
+     * are evaluated as by {@link #getPermittedTriggers()}, without allocating, so several triggers can be tested at
+     * once by masking the result.
+     *
+     * @return The mask of the ordinals of the permitted triggers
+     * @throws IllegalStateException if a configured trigger is not an enum constant, or its ordinal is 64 or more
+     */
+    public long getPermittedTriggerMask() {
+        long mask = getCurrentRepresentation().permittedTriggerMask(null);
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                mask |= region.getPermittedTriggerMask();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * The currently-permissible triggers, as the ordinals of the permitted triggers set in a reusable bit set, for
+     * enums of any size. Guards are evaluated as by {@link #getPermittedTriggers()}, without allocating once the set
+     * has grown to hold the largest ordinal.
+     *
+     * @param permitted The set to clear and fill
+     * @return The supplied set
+     * @throws IllegalStateException if a configured trigger is not an enum constant
+     */
+    public BitSet getPermittedTriggers(BitSet permitted) {
+        assert permitted != null : "permitted is null";
+        permitted.clear();
+        addPermittedTriggers(permitted);
+        return permitted;
+    }
+
+    private void addPermittedTriggers(BitSet permitted) {
+        getCurrentRepresentation().permittedTriggerMask(permitted);
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.addPermittedTriggers(permitted);
+            }
+        }
+    }
+
+    /**
+     * The current states of the active orthogonal regions, in the order the regions were configured.
+     *
+     * @return The current states of the active orthogonal regions, empty if the current state has no regions
+     */
+    public List<S> getRegionStates() {
+        if (regions == null) {
+            return Collections.emptyList();
+        }
+        List<S> states = new ArrayList<>(regions.size());
+        for (StateMachine<S, T> region : regions) {
+            states.add(region.getState());
+        }
+        return states;
     }
 
     StateRepresentation<S, T> getCurrentRepresentation() {
-        StateRepresentation<S, T> representation = config.getRepresentation(getState());
-        return representation == null ? new StateRepresentation<S, T>(getState()) : representation;
+        S state = getState();
+        if (cacheConfig != config || cacheModificationCount != config.getModificationCount()) {
+            resetCaches();
+        }
+        if (cachedRepresentation == null || state != cachedState) {
+            StateRepresentation<S, T> representation = config.getRepresentation(state);
+            cachedRepresentation = representation == null ? new StateRepresentation<S, T>(state) : representation;
+            cachedState = state;
+        }
+        return cachedRepresentation;
+    }
+
+    /**
+     * Look up the id and parameter configuration of the trigger, which is cached until another trigger is fired
+     *
+     * @return The id of the trigger, or -1 if it is not configured
+     */
+    private int resolveTrigger(T trigger) {
+        if (cacheConfig != config || cacheModificationCount != config.getModificationCount()) {
+            resetCaches();
+        }
+        if (trigger != cachedTrigger) {
+            int id = config.getTriggerId(trigger);
+            cachedTriggerConfiguration = config.getTriggerConfiguration(id);
+            cachedTriggerId = id;
+            cachedTrigger = id < 0 ? null : trigger;
+            return id;
+        }
+        return cachedTriggerId;
+    }
+
+    private void resetCaches() {
+        cacheConfig = config;
+        cacheModificationCount = config.getModificationCount();
+        cachedState = null;
+        cachedRepresentation = null;
+        cachedTrigger = null;
+        cachedTriggerConfiguration = null;
     }
 
     /**
@@ -130,7 +410,7 @@ public class StateMachine<S, T> {
      * @param trigger The trigger to fire
      */
     public void fire(T trigger) {
-        publicFire(trigger);
+        publicFire(trigger, 0, null, null, null, null);
     }
 
     /**
@@ -145,7 +425,7 @@ public class StateMachine<S, T> {
      */
     public <TArg0> void fire(TriggerWithParameters1<TArg0, S, T> trigger, TArg0 arg0) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), arg0);
+        publicFire(trigger.getTrigger(), 1, arg0, null, null, null);
     }
 
     /**
@@ -162,7 +442,7 @@ public class StateMachine<S, T> {
      */
     public <TArg0, TArg1> void fire(TriggerWithParameters2<TArg0, TArg1, S, T> trigger, TArg0 arg0, TArg1 arg1) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), arg0, arg1);
+        publicFire(trigger.getTrigger(), 2, arg0, arg1, null, null);
     }
 
     /**
@@ -181,30 +461,741 @@ public class StateMachine<S, T> {
      */
     public <TArg0, TArg1, TArg2> void fire(TriggerWithParameters3<TArg0, TArg1, TArg2, S, T> trigger, TArg0 arg0, TArg1 arg1, TArg2 arg2) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), arg0, arg1, arg2);
+        publicFire(trigger.getTrigger(), 3, arg0, arg1, arg2, null);
     }
 
+    /**
+     * Fire a trigger with its arguments in an array.
+     * <p>
+     * Fires no longer go through this method: {@link #fire(Object)} and the typed fire methods call
+     * {@link #publicFire(Object, int, Object, Object, Object, Object[])} directly, so a subclass that overrides this
+     * method does not see them. Override that method instead, which this one calls.
+     *
+     * @param trigger The trigger to fire
+     * @param args    The arguments
+     * @deprecated Override or call {@link #publicFire(Object, int, Object, Object, Object, Object[])}
+     */
+    @Deprecated
     protected void publicFire(T trigger, Object... args) {
-        logger.info("Firing " + trigger);
-        TriggerWithParameters<S, T> configuration = config.getTriggerConfiguration(trigger);
-        if (configuration != null) {
-            configuration.validateParameters(args);
+        assert args != null : "args is null";
+        publicFire(trigger, args.length, ParameterConversion.argumentAt(args, 0), ParameterConversion.argumentAt(args, 1),
+                ParameterConversion.argumentAt(args, 2), args);
+    }
+
+    /**
+     * Fire a trigger with its first three arguments passed separately, as the typed fire methods do without putting
+     * them in an array. Every fire goes through this method, so it is the one for subclasses to override. Guards,
+     * destination selectors and entry actions configured for typed triggers are called with the separate arguments;
+     * an array is only created for those that take one, and to defer the trigger or fire it in orthogonal regions.
+     *
+     * @param trigger The trigger to fire
+     * @param count   The number of arguments
+     * @param arg0    The first argument, if any
+     * @param arg1    The second argument, if any
+     * @param arg2    The third argument, if any
+     * @param args    All the arguments, or null if the caller has no array, in which case there are at most three
+     */
+    protected void publicFire(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        logger.info("Firing {}", trigger);
+        if (firing) {
+            validateAndDispatch(trigger, count, arg0, arg1, arg2, args);
+            return;
+        }
+        // the state accessor is called once per run to completion: triggers fired by actions of this fire, and
+        // deferred triggers it replays, see the state through firingState and complete on the same configuration
+        firingState = stateAccessor == null ? state : stateAccessor.call();
+        firing = true;
+        try {
+            if (configHolder != null) {
+                StateMachineConfigHolder.Version<S, T> latest = configHolder.current();
+                if (latest.number != configVersion) {
+                    applyConfiguration(latest, configVersion);
+                    configVersion = latest.number;
+                    if (timerWheel != null) {
+                        rearmTimeouts();
+                    }
+                }
+            }
+            validateAndDispatch(trigger, count, arg0, arg1, arg2, args);
+            while (replayDeferredTriggers() || fireDueTimeouts()) {
+                // until a pass takes no transition and no timeout expired meanwhile
+            }
+        } finally {
+            firing = false;
+            if (firingStateChanged) {
+                firingStateChanged = false;
+                writeState(firingState);
+            }
+            firingState = null;
+        }
+    }
+
+    private void validateAndDispatch(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        resolveTrigger(trigger);
+        if (cachedTriggerConfiguration != null) {
+            if (args != null) {
+                cachedTriggerConfiguration.validateParameters(args);
+            } else {
+                cachedTriggerConfiguration.validateParameters(count, arg0, arg1, arg2);
+            }
         }
 
-        TriggerBehaviour<S, T> triggerBehaviour = getCurrentRepresentation().tryFindHandler(trigger, args);
+        dispatch(trigger, count, arg0, arg1, arg2, args);
+    }
+
+    /**
+     * Switch this state machine and its orthogonal regions to a new version of the configuration, mapping states
+     * that the versions since the current one do not configure. If the mapped state has other orthogonal regions,
+     * the active ones are stopped and those of the mapped state are started, all without exit or entry actions.
+     * Timeouts must be rearmed afterwards.
+     */
+    private void applyConfiguration(StateMachineConfigHolder.Version<S, T> version, long fromVersion) {
+        StateMachineConfig<S, T> newConfig = version.config;
+        config = newConfig;
+        S state = getState();
+        S mapped = version.mapState(state, fromVersion);
+        Transition<S, T> remap = null;
+        if (!mapped.equals(state)) {
+            logger.info("Mapped state {} to {} on configuration reload", state, mapped);
+            setState(mapped);
+            remap = new Transition<>(state, mapped, null);
+        }
+        if (regions != null) {
+            StateRepresentation<S, T> owner = newConfig.getRepresentation(regionOwner.getUnderlyingState());
+            if (owner != null) {
+                regionOwner = owner;
+            }
+            if (remap != null && findInHierarchy(getCurrentRepresentation(), regionOwner.getUnderlyingState()) != regionOwner) {
+                stopRegions(remap, false);
+            } else {
+                for (StateMachine<S, T> region : regions) {
+                    region.applyConfiguration(version, fromVersion);
+                }
+            }
+        }
+        if (remap != null) {
+            startRegions(remap, 0, null, null, null, NO_ARGS, false);
+        }
+    }
+
+    /**
+     * Fire a trigger whose parameters have been validated in the orthogonal regions that handle it or, if there are
+     * none, in this state machine
+     */
+    private void dispatch(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (regions != null) {
+            if (args == null) {
+                args = ParameterConversion.pack(count, arg0, arg1, arg2);
+            }
+            List<RegionFire<S, T>> handling = resolveRegions(trigger, args);
+            if (handling != null) {
+                fireRegions(handling);
+                return;
+            }
+        }
+        fireValidated(trigger, count, arg0, arg1, arg2, args, false);
+    }
+
+    /**
+     * Find the behaviour of the current state, or of its superstates, that handles a trigger, without the orthogonal
+     * regions
+     *
+     * @return The behaviour, or null if the trigger is not handled
+     */
+    private TriggerBehaviour<S, T> findHandler(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        StateRepresentation<S, T> representation = getCurrentRepresentation();
+        int triggerId = resolveTrigger(trigger);
+        return config.isFirstMatchGuardEvaluationEnabled()
+                ? representation.tryFindFirstHandler(triggerId, trigger, count, arg0, arg1, arg2, args)
+                : representation.tryFindHandler(triggerId, trigger, count, arg0, arg1, arg2, args);
+    }
+
+    /**
+     * Fire a trigger whose parameters have been validated
+     *
+     * @return True if a transition took place
+     */
+    private boolean fireValidated(T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args, boolean replayed) {
+        TriggerBehaviour<S, T> triggerBehaviour = findHandler(trigger, count, arg0, arg1, arg2, args);
         if (triggerBehaviour == null) {
-            unhandledTriggerAction.doIt(getCurrentRepresentation().getUnderlyingState(), trigger);
-            return;
+            (replayed ? unhandledDeferredTriggerAction : unhandledTriggerAction).doIt(getState(), trigger);
+            return false;
+        }
+        return fireBehaviour(triggerBehaviour, trigger, count, arg0, arg1, arg2, args);
+    }
+
+    /**
+     * Take the transition of the behaviour resolved to handle a trigger, or defer the trigger
+     *
+     * @return True if a transition took place
+     */
+    private boolean fireBehaviour(TriggerBehaviour<S, T> triggerBehaviour, T trigger, int count, Object arg0, Object arg1,
+                                  Object arg2, Object[] args) {
+        if (triggerBehaviour instanceof DeferredTriggerBehaviour) {
+            if (deferredTriggers == null) {
+                deferredTriggers = new DeferredTriggerQueue<>();
+            }
+            deferredTriggers.add(trigger, args != null ? args : ParameterConversion.pack(count, arg0, arg1, arg2));
+            return false;
         }
 
         S source = getState();
-        OutVar<S> destination = new OutVar<>();
-        if (triggerBehaviour.resultsInTransitionFrom(source, args, destination)) {
-            Transition<S, T> transition = new Transition<>(source, destination.get(), trigger);
+        S destination = triggerBehaviour.resolveDestination(source, count, arg0, arg1, arg2, args);
+        if (destination != null) {
+            Transition<S, T> transition = new Transition<>(source, destination, trigger);
+            commitTransition(transition);
 
-            getCurrentRepresentation().exit(transition);
-            setState(destination.get());
-            getCurrentRepresentation().enter(transition, args);
+            if (regions != null && isExitedBy(regionOwner, transition)) {
+                stopRegions(transition, entryAndExitActionsEnabled);
+            }
+            if (entryAndExitActionsEnabled) {
+                getCurrentRepresentation().exit(transition);
+            }
+            if (timerWheel != null) {
+                lockEffects();
+                try {
+                    cancelExitedTimeouts(transition);
+                } finally {
+                    unlockEffects();
+                }
+            }
+            setState(destination);
+            if (timerWheel != null) {
+                lockEffects();
+                try {
+                    armEnteredTimeouts(transition);
+                } finally {
+                    unlockEffects();
+                }
+            }
+            if (entryAndExitActionsEnabled) {
+                getCurrentRepresentation().enter(transition, count, arg0, arg1, arg2, args);
+            }
+            transitionCount++;
+            if (deferredTriggers != null && !deferredTriggers.isEmpty()) {
+                deferredTriggers.due = true;
+            }
+            TransitionObserverIndex<S, T> observers = config.getTransitionObservers();
+            if (transitionListeners != null || observers != null) {
+                lockEffects();
+                try {
+                    if (transitionListeners != null) {
+                        for (Action1<Transition<S, T>> listener : transitionListeners) {
+                            listener.doIt(transition);
+                        }
+                    }
+                    if (observers != null) {
+                        observers.notify(transition);
+                    }
+                } finally {
+                    unlockEffects();
+                }
+            }
+            if (publication != null) {
+                publication.ring.publish(publication.machine, source, trigger, destination, count, arg0, arg1, arg2, args);
+            }
+            startRegions(transition, count, arg0, arg1, arg2, args, entryAndExitActionsEnabled);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called once the destination of a transition has been resolved, before any action of the transition runs or
+     * the state is changed. A subclass may throw to abandon the transition without side effects.
+     *
+     * @param transition The transition about to take place
+     */
+    protected void commitTransition(Transition<S, T> transition) {
+    }
+
+    /**
+     * Fire the timeouts that expired during the current fire of this top-level machine and are still armed
+     *
+     * @return True if a timeout was fired
+     */
+    private boolean fireDueTimeouts() {
+        boolean fired = false;
+        while (dueTimeouts != null && !dueTimeouts.isEmpty()) {
+            StateTimeout timeout = dueTimeouts.remove(0);
+            if (timeout.due) {
+                fired = true;
+                validateAndDispatch(timeout.take(), 0, null, null, null, null);
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Fire each deferred trigger of this state machine and its active orthogonal regions once, in the order they were
+     * deferred, if the machine has transitioned since they were deferred. Called once the outermost fire has run to
+     * completion, and again until a pass takes no transition, so that the machine settles in a state that defers all
+     * of the remaining triggers. Deferred triggers that are no longer handled are passed to
+     * {@link #onUnhandledDeferredTrigger(Action2)} instead of the unhandled trigger action.
+     *
+     * @return True if a transition took place
+     */
+    private boolean replayDeferredTriggers() {
+        boolean transitioned = false;
+        if (deferredTriggers != null && deferredTriggers.due) {
+            deferredTriggers.due = false;
+            for (int pending = deferredTriggers.size(); pending > 0; pending--) {
+                T trigger = deferredTriggers.peekTrigger();
+                Object[] args = deferredTriggers.peekArgs();
+                deferredTriggers.remove();
+                transitioned |= fireValidated(trigger, args.length, ParameterConversion.argumentAt(args, 0),
+                        ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args, true);
+            }
+        }
+        List<StateMachine<S, T>> active = regions;
+        if (active != null) {
+            for (int i = 0; i < active.size() && active == regions; i++) {
+                transitioned |= active.get(i).replayDeferredTriggers();
+            }
+        }
+        return transitioned;
+    }
+
+    /**
+     * Run the timeouts configured with {@link StateConfiguration#permitAfter} on the supplied wheel. Timeouts of the
+     * current state and its superstates are armed immediately; afterwards timeouts are armed as states are entered
+     * and cancelled as they are exited. Expired timeouts fire their trigger on the wheel's driver thread, so the
+     * state machine should be fired from that thread as well. Timeouts of orthogonal regions are fired through the
+     * top-level machine like any other trigger, and a timeout that expires during a fire, for example because an
+     * action advances the wheel, is fired once that fire has run to completion, unless its state was exited
+     * meanwhile.
+     *
+     * @param timerWheel The wheel to schedule timeouts on, or null to stop using timeouts
+     */
+    public void useTimerWheel(TimerWheel timerWheel) {
+        if (armedTimeouts != null) {
+            for (int i = armedTimeouts.size() - 1; i >= 0; i--) {
+                StateTimeout timeout = armedTimeouts.remove(i);
+                timeout.cancel();
+                recycle(timeout);
+            }
+        }
+        this.timerWheel = timerWheel;
+        if (timerWheel != null) {
+            for (StateRepresentation<S, T> r = getCurrentRepresentation(); r != null; r = r.getSuperstate()) {
+                armTimeouts(r);
+            }
+        }
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.useTimerWheel(timerWheel);
+            }
+        }
+    }
+
+    /**
+     * True if the transition exits the supplied state, following the same rules as
+     * {@link StateRepresentation#exit(Transition)}
+     */
+    private static <S, T> boolean isExitedBy(StateRepresentation<S, T> representation, Transition<S, T> transition) {
+        return transition.isReentry()
+                ? representation.getUnderlyingState().equals(transition.getSource())
+                : !representation.includes(transition.getDestination());
+    }
+
+    /**
+     * Start the orthogonal regions of the nearest state in the current state's hierarchy that has any, unless they
+     * are already active
+     *
+     * @param transition      The transition that entered the current state
+     * @param count           The number of arguments of the trigger that caused the transition
+     * @param arg0            The first argument, if any
+     * @param arg1            The second argument, if any
+     * @param arg2            The third argument, if any
+     * @param args            All the arguments, or null if they were passed separately
+     * @param runEntryActions True if the entry actions of the initial states of the regions must be executed
+     */
+    private void startRegions(Transition<S, T> transition, int count, Object arg0, Object arg1, Object arg2,
+                              Object[] args, boolean runEntryActions) {
+        StateRepresentation<S, T> owner = getCurrentRepresentation();
+        while (owner != null && owner.getRegions().isEmpty()) {
+            owner = owner.getSuperstate();
+        }
+        if (owner == null || owner == regionOwner) {
+            return;
+        }
+        if (regions != null) {
+            stopRegions(transition, entryAndExitActionsEnabled);
+        }
+        List<StateMachine<S, T>> started = new ArrayList<>(owner.getRegions().size());
+        for (S initialState : owner.getRegions()) {
+            StateMachine<S, T> region = new StateMachine<>(config, initialState);
+            Transition<S, T> entry = new Transition<>(transition.getSource(), initialState, transition.getTrigger());
+            if (runEntryActions) {
+                region.getCurrentRepresentation().enter(entry, count, arg0, arg1, arg2, args);
+            }
+            if (timerWheel != null) {
+                lockEffects();
+                try {
+                    region.useTimerWheel(timerWheel);
+                } finally {
+                    unlockEffects();
+                }
+            }
+            region.parent = this;
+            region.parallelLock = parallelLock;
+            region.unhandledDeferredTriggerAction = unhandledDeferredTriggerAction;
+            region.transitionListeners = transitionListeners;
+            region.publication = publication;
+            region.entryAndExitActionsEnabled = entryAndExitActionsEnabled;
+            region.startRegions(entry, count, arg0, arg1, arg2, args, runEntryActions);
+            started.add(region);
+        }
+        regionOwner = owner;
+        regions = started;
+    }
+
+    /**
+     * Exit the current states of the active orthogonal regions, innermost first
+     *
+     * @param transition     The transition that exits the state owning the regions
+     * @param runExitActions True if the exit actions of the current states of the regions must be executed
+     */
+    private void stopRegions(Transition<S, T> transition, boolean runExitActions) {
+        for (StateMachine<S, T> region : regions) {
+            if (region.regions != null) {
+                region.stopRegions(transition, runExitActions);
+            }
+            if (runExitActions) {
+                Transition<S, T> exit = new Transition<>(region.getState(), transition.getDestination(), transition.getTrigger());
+                region.getCurrentRepresentation().exit(exit);
+            }
+            if (region.timerWheel != null) {
+                lockEffects();
+                try {
+                    region.useTimerWheel(null);
+                } finally {
+                    unlockEffects();
+                }
+            }
+            transitionCount += region.transitionCount;
+        }
+        regionOwner = null;
+        regions = null;
+    }
+
+    /**
+     * Resolve how the active orthogonal regions handle a trigger, evaluating each guard once, on the firing thread
+     *
+     * @return The regions that handle the trigger, in configuration order, or null if none does
+     */
+    private List<RegionFire<S, T>> resolveRegions(T trigger, Object[] args) {
+        List<RegionFire<S, T>> handling = null;
+        for (StateMachine<S, T> region : regions) {
+            RegionFire<S, T> fire = region.resolveAsRegion(trigger, args);
+            if (fire != null) {
+                if (handling == null) {
+                    handling = new ArrayList<>(regions.size());
+                }
+                handling.add(fire);
+            }
+        }
+        return handling;
+    }
+
+    /**
+     * Resolve how this orthogonal region handles a trigger: through its own regions if any of them handles it,
+     * otherwise through the behaviour of its current state
+     *
+     * @return The resolution, or null if the region does not handle the trigger
+     */
+    private RegionFire<S, T> resolveAsRegion(T trigger, Object[] args) {
+        if (regions != null) {
+            List<RegionFire<S, T>> nested = resolveRegions(trigger, args);
+            if (nested != null) {
+                return new RegionFire<>(this, trigger, args, null, nested);
+            }
+        }
+        TriggerBehaviour<S, T> behaviour = findHandler(trigger, args.length, ParameterConversion.argumentAt(args, 0),
+                ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args);
+        return behaviour == null ? null : new RegionFire<>(this, trigger, args, behaviour, null);
+    }
+
+    /**
+     * Fire a trigger in the orthogonal regions resolved to handle it, in parallel on the region pool if several do.
+     * Parallel regions run their actions on the pool, and share a lock to arm and cancel timeouts and call the
+     * transition listeners and observers one at a time.
+     */
+    private void fireRegions(final List<RegionFire<S, T>> handling) {
+        ForkJoinPool pool = config.getRegionPool();
+        if (pool == null || handling.size() == 1) {
+            for (RegionFire<S, T> fire : handling) {
+                fire.compute();
+            }
+            return;
+        }
+        ReentrantLock lock = parallelLock != null ? parallelLock : new ReentrantLock();
+        config.getTransitionObservers(); // build the index of a mutable configuration before the regions share it
+        for (RegionFire<S, T> fire : handling) {
+            fire.region.shareParallelLock(lock);
+        }
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(handling);
+                }
+            });
+        } finally {
+            for (RegionFire<S, T> fire : handling) {
+                fire.region.shareParallelLock(parallelLock);
+            }
+        }
+    }
+
+    private void shareParallelLock(ReentrantLock lock) {
+        parallelLock = lock;
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.shareParallelLock(lock);
+            }
+        }
+    }
+
+    private void lockEffects() {
+        if (parallelLock != null) {
+            parallelLock.lock();
+        }
+    }
+
+    private void unlockEffects() {
+        if (parallelLock != null) {
+            parallelLock.unlock();
+        }
+    }
+
+    private void cancelExitedTimeouts(Transition<S, T> transition) {
+        if (armedTimeouts == null) {
+            return;
+        }
+        for (int i = armedTimeouts.size() - 1; i >= 0; i--) {
+            StateTimeout timeout = armedTimeouts.get(i);
+            if (isExitedBy(timeout.representation, transition)) {
+                timeout.cancel();
+                armedTimeouts.remove(i);
+                recycle(timeout);
+            }
+        }
+    }
+
+    private void armEnteredTimeouts(Transition<S, T> transition) {
+        StateRepresentation<S, T> representation = getCurrentRepresentation();
+        if (transition.isReentry()) {
+            armTimeouts(representation);
+            return;
+        }
+        for (StateRepresentation<S, T> r = representation; r != null && !r.includes(transition.getSource()); r = r.getSuperstate()) {
+            armTimeouts(r);
+        }
+    }
+
+    private void armTimeouts(StateRepresentation<S, T> representation) {
+        List<TimedTrigger<T>> timedTriggers = representation.getTimeouts();
+        for (int i = 0; i < timedTriggers.size(); i++) {
+            armTimeout(representation, timedTriggers.get(i));
+        }
+    }
+
+    private void armTimeout(StateRepresentation<S, T> representation, TimedTrigger<T> timedTrigger) {
+        if (armedTimeouts == null) {
+            armedTimeouts = new ArrayList<>(2);
+        }
+        StateTimeout timeout = spareTimeouts;
+        if (timeout == null) {
+            timeout = new StateTimeout();
+        } else {
+            spareTimeouts = timeout.nextSpare;
+            timeout.nextSpare = null;
+        }
+        timeout.representation = representation;
+        timeout.trigger = timedTrigger.getTrigger();
+        timeout.delayNanos = timedTrigger.getDelayNanos();
+        armedTimeouts.add(timerWheel.schedule(timeout, timedTrigger.getDelayNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * After switching to a new version of the configuration, keep running the timeouts that the new version
+     * configures identically for a state of the current hierarchy, with their remaining delay, cancel the others, and
+     * arm the timeouts that the new version adds. The same is done in the orthogonal regions.
+     */
+    private void rearmTimeouts() {
+        StateRepresentation<S, T> current = getCurrentRepresentation();
+        if (armedTimeouts != null) {
+            for (int i = armedTimeouts.size() - 1; i >= 0; i--) {
+                StateTimeout timeout = armedTimeouts.get(i);
+                StateRepresentation<S, T> representation = findInHierarchy(current, timeout.representation.getUnderlyingState());
+                if (representation != null && findTimedTrigger(representation, timeout.trigger, timeout.delayNanos) != null) {
+                    timeout.representation = representation;
+                } else {
+                    timeout.cancel();
+                    armedTimeouts.remove(i);
+                    recycle(timeout);
+                }
+            }
+        }
+        for (StateRepresentation<S, T> r = current; r != null; r = r.getSuperstate()) {
+            List<TimedTrigger<T>> timedTriggers = r.getTimeouts();
+            for (int i = 0; i < timedTriggers.size(); i++) {
+                TimedTrigger<T> timedTrigger = timedTriggers.get(i);
+                if (!isArmed(r, timedTrigger)) {
+                    armTimeout(r, timedTrigger);
+                }
+            }
+        }
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                if (region.timerWheel != null) {
+                    region.rearmTimeouts();
+                }
+            }
+        }
+    }
+
+    private static <S, T> StateRepresentation<S, T> findInHierarchy(StateRepresentation<S, T> representation, S state) {
+        for (StateRepresentation<S, T> r = representation; r != null; r = r.getSuperstate()) {
+            if (r.getUnderlyingState().equals(state)) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    private static <S, T> TimedTrigger<T> findTimedTrigger(StateRepresentation<S, T> representation, T trigger, long delayNanos) {
+        List<TimedTrigger<T>> timedTriggers = representation.getTimeouts();
+        for (int i = 0; i < timedTriggers.size(); i++) {
+            TimedTrigger<T> timedTrigger = timedTriggers.get(i);
+            if (timedTrigger.getTrigger().equals(trigger) && timedTrigger.getDelayNanos() == delayNanos) {
+                return timedTrigger;
+            }
+        }
+        return null;
+    }
+
+    private boolean isArmed(StateRepresentation<S, T> representation, TimedTrigger<T> timedTrigger) {
+        if (armedTimeouts != null) {
+            for (int i = 0; i < armedTimeouts.size(); i++) {
+                StateTimeout timeout = armedTimeouts.get(i);
+                if (timeout.representation == representation && timeout.trigger.equals(timedTrigger.getTrigger())
+                        && timeout.delayNanos == timedTrigger.getDelayNanos()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void recycle(StateTimeout timeout) {
+        timeout.due = false;
+        timeout.representation = null;
+        timeout.trigger = null;
+        timeout.nextSpare = spareTimeouts;
+        spareTimeouts = timeout;
+    }
+
+    /**
+     * Gets whether entry and exit actions are executed on transitions. Default is true.
+     *
+     * @return true if entry and exit actions are executed
+     */
+    public boolean isEntryAndExitActionsEnabled() {
+        return entryAndExitActionsEnabled;
+    }
+
+    /**
+     * Executes entry and exit actions on transitions. This is the default.
+     */
+    public void enableEntryAndExitActions() {
+        setEntryAndExitActionsEnabled(true);
+    }
+
+    /**
+     * Skips entry and exit actions on transitions, including those of orthogonal regions, for example to replay a
+     * trigger log without repeating its side effects. Transition listeners are still called.
+     */
+    public void disableEntryAndExitActions() {
+        setEntryAndExitActionsEnabled(false);
+    }
+
+    private void setEntryAndExitActionsEnabled(boolean enabled) {
+        entryAndExitActionsEnabled = enabled;
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.setEntryAndExitActionsEnabled(enabled);
+            }
+        }
+    }
+
+    /**
+     * The number of transitions this state machine and its orthogonal regions have taken, including reentries
+     *
+     * @return The number of transitions taken
+     */
+    public long getTransitionCount() {
+        long count = transitionCount;
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                count += region.getTransitionCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Register an action to call after each transition, once the entry actions of the destination state have been
+     * executed, including transitions of the orthogonal regions
+     *
+     * @param listener An action to call with each transition
+     */
+    public void onTransitioned(Action1<Transition<S, T>> listener) {
+        assert listener != null : "listener is null";
+        if (transitionListeners == null) {
+            shareTransitionListeners(new ArrayList<Action1<Transition<S, T>>>(1));
+        }
+        transitionListeners.add(listener);
+    }
+
+    /**
+     * Unregister an action registered with {@link #onTransitioned(Action1)}. Must not be called while the state
+     * machine is firing.
+     *
+     * @param listener The action to unregister
+     * @return True if the action was registered
+     */
+    public boolean removeTransitionListener(Action1<Transition<S, T>> listener) {
+        return transitionListeners != null && transitionListeners.remove(listener);
+    }
+
+    private void shareTransitionListeners(List<Action1<Transition<S, T>>> listeners) {
+        transitionListeners = listeners;
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.shareTransitionListeners(listeners);
+            }
+        }
+    }
+
+    /**
+     * Publish each transition to a ring buffer read by other threads, after the transition listeners have been
+     * called, including transitions of the orthogonal regions. Publishing copies the transition and the arguments of
+     * its trigger into a preallocated slot, and only waits when the ring is full.
+     *
+     * @param ring The ring to publish to, or null to stop publishing
+     */
+    public void publishTransitions(TransitionRingBuffer<S, T> ring) {
+        sharePublication(ring == null ? null : new Publication<>(ring, this));
+    }
+
+    private void sharePublication(Publication<S, T> shared) {
+        publication = shared;
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                region.sharePublication(shared);
+            }
         }
     }
 
@@ -220,26 +1211,64 @@ public class StateMachine<S, T> {
         this.unhandledTriggerAction = unhandledTriggerAction;
     }
 
+    /**
+     * Override the default behaviour of logging and dropping a deferred trigger that is no longer handled when it is
+     * replayed, for instance because the machine moved to a state that neither handles nor defers it. The trigger
+     * is dropped either way; the fire that led to the replay has already completed, so the action should not throw.
+     * The action is also used by the orthogonal regions started afterwards.
+     *
+     * @param unhandledDeferredTriggerAction An action to call with the state and each dropped deferred trigger
+     */
+    public void onUnhandledDeferredTrigger(Action2<S, T> unhandledDeferredTriggerAction) {
+        if (unhandledDeferredTriggerAction == null) {
+            throw new IllegalStateException("unhandledDeferredTriggerAction");
+        }
+        this.unhandledDeferredTriggerAction = unhandledDeferredTriggerAction;
+    }
+
     /**
      * Determine if the state machine is in the supplied state
      *
      * @param state The state to test for
-     * @return True if the current state is equal to, or a substate of, the supplied state
+     * @return True if the current state, or the current state of an active orthogonal region, is equal to, or a
+     * substate of, the supplied state
      */
     public boolean isInState(S state) {
-        return getCurrentRepresentation().isIncludedIn(state);
+        if (getCurrentRepresentation().isIncludedIn(state)) {
+            return true;
+        }
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                if (region.isInState(state)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
      * Returns true if {@code trigger} can be fired in the current state. Evaluates the provided trigger parameters
-     * for transitions with parametrized guard function specified.
+     * for transitions with parametrized guard function specified. Guards are resolved as when firing, so with first
+     * match guard evaluation enabled, overlapping guards are accepted rather than reported.
      *
      * @param trigger Trigger to test
      * @param args    Trigger parameters to evaluate guards with
      * @return True if the trigger can be fired, false otherwise
      */
     public boolean canFire(T trigger, Object... args) {
-        return getCurrentRepresentation().canHandle(trigger, args);
+        if (findHandler(trigger, args.length, ParameterConversion.argumentAt(args, 0), ParameterConversion.argumentAt(args, 1),
+                ParameterConversion.argumentAt(args, 2), args) != null) {
+            return true;
+        }
+        if (regions != null) {
+            for (StateMachine<S, T> region : regions) {
+                if (region.canFire(trigger, args)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -269,4 +1298,94 @@ public class StateMachine<S, T> {
                 getState(),
                 params.toString());
     }
+
+    /**
+     * The ring transitions are published to, and the machine they are published as, which is the one the ring was
+     * attached to rather than an orthogonal region of it
+     */
+    private static final class Publication<S, T> {
+
+        final TransitionRingBuffer<S, T> ring;
+        final StateMachine<S, T> machine;
+
+        Publication(TransitionRingBuffer<S, T> ring, StateMachine<S, T> machine) {
+            this.ring = ring;
+            this.machine = machine;
+        }
+    }
+
+    /**
+     * How an orthogonal region handles a trigger, resolved before the handling regions are fired: with the behaviour
+     * of its current state or, if its own regions handle the trigger, with theirs
+     */
+    private static final class RegionFire<S, T> extends RecursiveAction {
+
+        final StateMachine<S, T> region;
+        private final T trigger;
+        private final Object[] args;
+        private final TriggerBehaviour<S, T> behaviour; // null if the nested regions handle the trigger
+        private final List<RegionFire<S, T>> nested;
+
+        RegionFire(StateMachine<S, T> region, T trigger, Object[] args, TriggerBehaviour<S, T> behaviour, List<RegionFire<S, T>> nested) {
+            this.region = region;
+            this.trigger = trigger;
+            this.args = args;
+            this.behaviour = behaviour;
+            this.nested = nested;
+        }
+
+        @Override
+        protected void compute() {
+            if (nested != null) {
+                region.fireRegions(nested);
+            } else {
+                region.fireBehaviour(behaviour, trigger, args.length, ParameterConversion.argumentAt(args, 0),
+                        ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args);
+            }
+        }
+    }
+
+    private final class StateTimeout extends Timeout {
+
+        private StateRepresentation<S, T> representation;
+        private T trigger;
+        private long delayNanos;
+        private boolean due; // expired during a fire and queued on the top-level machine, until fired or cancelled
+        private StateTimeout nextSpare;
+
+        @Override
+        protected void expire() {
+            StateMachine<S, T> top = StateMachine.this;
+            while (top.parent != null) {
+                top = top.parent;
+            }
+            if (top.firing) {
+                // stays armed, so that exiting its state before the fire completes still cancels it
+                lockEffects();
+                try {
+                    due = true;
+                    if (top.dueTimeouts == null) {
+                        top.dueTimeouts = new ArrayList<>(2);
+                    }
+                    top.dueTimeouts.add(this);
+                } finally {
+                    unlockEffects();
+                }
+                return;
+            }
+            top.fire(take());
+        }
+
+        /**
+         * Disarm the expired timeout
+         *
+         * @return Its trigger
+         */
+        T take() {
+            T expired = trigger;
+            armedTimeouts.remove(this);
+            recycle(this);
+            return expired;
+        }
+    }
 }
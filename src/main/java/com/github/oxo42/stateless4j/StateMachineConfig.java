@@ -1,34 +1,170 @@
 package com.github.oxo42.stateless4j;
 
+import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.DynamicTriggerBehaviour;
 import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The state machine configuration. Reusable.
  */
 public class StateMachineConfig<TState,TTrigger> {
 
-    private final Map<TState, StateRepresentation<TState, TTrigger>> stateConfiguration = new HashMap<>();
-    private final Map<TTrigger, TriggerWithParameters<TState, TTrigger>> triggerConfiguration = new HashMap<>();
+    private final Map<TState, StateRepresentation<TState, TTrigger>> stateConfiguration;
+    private final Map<TTrigger, TriggerWithParameters<TState, TTrigger>> triggerConfiguration;
+    private final SymbolTable<TState> stateSymbols;
+    private final SymbolTable<TTrigger> triggerSymbols;
+    // the same entries as the maps above, indexed by symbol id for the fire path
+    private final List<StateRepresentation<TState, TTrigger>> representationsById;
+    private final List<TriggerWithParameters<TState, TTrigger>> triggerConfigurationsById;
+    private int modificationCount; // counts added representations and trigger parameters, for the caches of state machines
     /**
      * Added in 2.5.2.
      * Default MUST be false for backward compatibility reasons. Prior to 2.5.2,
      * entering the initial state never fires its entry action.
      */
     private boolean entryActionOfInitialStateEnabled = false;
+    private boolean firstMatchGuardEvaluationEnabled = false;
+    private boolean stateWriteCoalescingEnabled = false;
+    private ForkJoinPool regionPool; // null: regions are fired one after the other on the firing thread
+    private List<TransitionObserverIndex.Registration<TState, TTrigger>> observerRegistrations; // null until an observer is added
+    private TransitionObserverIndex<TState, TTrigger> transitionObservers; // built from the registrations when first needed
+
+    public StateMachineConfig() {
+        this(16, false);
+    }
+
+    /**
+     * Construct a configuration sized for the given number of states, so that loading large tables with
+     * {@link #addEdges(Object[], Object[], Object[])} or {@link #loadEdges(Reader, char, Func2, Func2)} does not
+     * rehash the state map
+     *
+     * @param expectedStates The number of states that will be configured
+     */
+    public StateMachineConfig(int expectedStates) {
+        this(expectedStates, false);
+    }
+
+    /**
+     * Construct a configuration sized for the given number of states, choosing how states and triggers are told
+     * apart.
+     * <p>
+     * States and triggers are assigned dense ids in {@link SymbolTable}s as they are configured, and firing looks up
+     * the current state and the trigger once each by id. With identity symbols they are compared with == instead of
+     * equals(), which is faster for types such as String, but requires firing with the very instances used to
+     * configure, for example constants; an equal instance is treated as an unknown state or trigger.
+     *
+     * @param expectedStates  The number of states that will be configured
+     * @param identitySymbols True to compare states and triggers with == instead of equals()
+     */
+    public StateMachineConfig(int expectedStates, boolean identitySymbols) {
+        this(identitySymbols
+                        ? new IdentityHashMap<TState, StateRepresentation<TState, TTrigger>>(expectedStates)
+                        : new HashMap<TState, StateRepresentation<TState, TTrigger>>(expectedStates * 4 / 3 + 1),
+                identitySymbols
+                        ? new IdentityHashMap<TTrigger, TriggerWithParameters<TState, TTrigger>>()
+                        : new HashMap<TTrigger, TriggerWithParameters<TState, TTrigger>>(),
+                new SymbolTable<TState>(identitySymbols), new SymbolTable<TTrigger>(identitySymbols));
+    }
+
+    /**
+     * Construct a configuration around existing maps and symbol tables, which are assigned to final fields and are
+     * therefore safely published along with the configuration if they are complete when passed in
+     */
+    StateMachineConfig(Map<TState, StateRepresentation<TState, TTrigger>> stateConfiguration,
+                       Map<TTrigger, TriggerWithParameters<TState, TTrigger>> triggerConfiguration,
+                       SymbolTable<TState> stateSymbols, SymbolTable<TTrigger> triggerSymbols) {
+        this.stateConfiguration = stateConfiguration;
+        this.triggerConfiguration = triggerConfiguration;
+        this.stateSymbols = stateSymbols;
+        this.triggerSymbols = triggerSymbols;
+        this.representationsById = new ArrayList<>(Math.max(stateSymbols.size(), stateConfiguration.size()));
+        for (StateRepresentation<TState, TTrigger> representation : stateConfiguration.values()) {
+            putById(representationsById, stateSymbols.intern(representation.getUnderlyingState()), representation);
+        }
+        this.triggerConfigurationsById = new ArrayList<>(triggerSymbols.size());
+        for (TriggerWithParameters<TState, TTrigger> configuration : triggerConfiguration.values()) {
+            putById(triggerConfigurationsById, triggerSymbols.intern(configuration.getTrigger()), configuration);
+        }
+    }
+
+    private static <V> void putById(List<V> byId, int id, V value) {
+        while (byId.size() <= id) {
+            byId.add(null);
+        }
+        byId.set(id, value);
+    }
+
+    SymbolTable<TState> getStateSymbols() {
+        return stateSymbols;
+    }
+
+    SymbolTable<TTrigger> getTriggerSymbols() {
+        return triggerSymbols;
+    }
+
+    int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * @return The id of the trigger, or -1 if no behaviour or parameters are configured for it
+     */
+    int getTriggerId(TTrigger trigger) {
+        return triggerSymbols.indexOf(trigger);
+    }
+
+    /**
+     * Returns a deeply immutable copy of this configuration.
+     * <p>
+     * The copy can be shared by state machines on any number of threads without synchronisation: its state
+     * representations are copied and linked before they are assigned to final fields, so they are safely published
+     * along with the copy, even through a data race. Calls that would change the copy, such as
+     * {@link #configure(Object)} or {@link #setTriggerParameters(Object, Class)}, throw IllegalStateException.
+     * Later changes to this configuration do not affect the copy.
+     *
+     * @return An immutable copy of this configuration, or this configuration if it is already immutable
+     */
+    public StateMachineConfig<TState, TTrigger> toImmutable() {
+        return new ImmutableStateMachineConfig<>(this);
+    }
+
+    /**
+     * Gets whether the configuration can still be changed
+     *
+     * @return false if the configuration was created by {@link #toImmutable()}
+     */
+    public boolean isMutable() {
+        return true;
+    }
+
+    Collection<StateRepresentation<TState, TTrigger>> getRepresentations() {
+        return stateConfiguration.values();
+    }
+
+    Collection<TriggerWithParameters<TState, TTrigger>> getTriggerConfigurations() {
+        return triggerConfiguration.values();
+    }
 
     /**
      * Gets whether the entry action of the initial state of the state machine
@@ -62,6 +198,198 @@ public class StateMachineConfig<TState,TTrigger> {
         this.entryActionOfInitialStateEnabled = true;
     }
     
+    /**
+     * Gets whether handlers are resolved by taking the first behaviour whose guard condition is met, instead of
+     * evaluating every guard of the trigger to detect guards that are not mutually exclusive.
+     * Default is false.
+     *
+     * @return true if the first behaviour whose guard condition is met handles the trigger
+     */
+    public boolean isFirstMatchGuardEvaluationEnabled() {
+        return firstMatchGuardEvaluationEnabled;
+    }
+
+    /**
+     * Resolves handlers by taking the first behaviour whose guard condition is met, in configuration order, without
+     * evaluating the remaining guards. Enabling this asserts that the guards of each trigger are mutually exclusive:
+     * overlapping guards are no longer detected when firing. Use {@link #validate()} to detect static overlaps.
+     * This configuration is disabled by default.
+     */
+    public void enableFirstMatchGuardEvaluation() {
+        this.firstMatchGuardEvaluationEnabled = true;
+    }
+
+    /**
+     * Evaluates every guard of a fired trigger and fails if more than one is met.
+     * This is the default.
+     */
+    public void disableFirstMatchGuardEvaluation() {
+        this.firstMatchGuardEvaluationEnabled = false;
+    }
+
+    /**
+     * Gets whether a state machine writes its state to the state mutator once per fire, instead of once per
+     * transition. Default is false.
+     *
+     * @return true if state writes are coalesced
+     */
+    public boolean isStateWriteCoalescingEnabled() {
+        return stateWriteCoalescingEnabled;
+    }
+
+    /**
+     * Makes state machines write their state to the state mutator once, when a fire completes, even if it took a
+     * chain of transitions through re-entrant fires or replayed deferred triggers. The state is also written if an
+     * action throws after a transition. Actions executed during the fire see the latest state through
+     * {@link StateMachine#getState()}, but not through the underlying storage.
+     * This configuration is disabled by default.
+     */
+    public void enableStateWriteCoalescing() {
+        this.stateWriteCoalescingEnabled = true;
+    }
+
+    /**
+     * Writes the state to the state mutator on every transition.
+     * This is the default.
+     */
+    public void disableStateWriteCoalescing() {
+        this.stateWriteCoalescingEnabled = false;
+    }
+
+    /**
+     * Checks the configuration for behaviours that can never be told apart when firing: a trigger configured more
+     * than once with the same outcome in a state, and unguarded behaviours that share their trigger with other
+     * behaviours of the same state. Such a trigger fails whenever it is fired from that state, so this is best called
+     * once the configuration is complete, and in particular before enabling first match guard evaluation.
+     *
+     * @throws IllegalStateException describing every problem found
+     */
+    public void validate() {
+        List<String> problems = new ArrayList<>();
+        for (StateRepresentation<TState, TTrigger> representation : stateConfiguration.values()) {
+            for (Map.Entry<TTrigger, List<TriggerBehaviour<TState, TTrigger>>> entry : representation.getTriggerBehaviours().entrySet()) {
+                validateBehaviours(representation.getUnderlyingState(), entry.getKey(), entry.getValue(), problems);
+            }
+        }
+        if (problems.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("Invalid state machine configuration:");
+        for (String problem : problems) {
+            message.append("\n\t").append(problem);
+        }
+        throw new IllegalStateException(message.toString());
+    }
+
+    private void validateBehaviours(TState state, TTrigger trigger, List<TriggerBehaviour<TState, TTrigger>> behaviours, List<String> problems) {
+        if (behaviours.size() < 2) {
+            return;
+        }
+        int unguarded = 0;
+        for (TriggerBehaviour<TState, TTrigger> behaviour : behaviours) {
+            if (!behaviour.isGuarded()) {
+                unguarded++;
+            }
+        }
+        if (unguarded == 0) {
+            return;
+        }
+
+        for (int i = 0; i < behaviours.size(); i++) {
+            for (int j = i + 1; j < behaviours.size(); j++) {
+                if (haveSameOutcome(behaviours.get(i), behaviours.get(j))) {
+                    problems.add(String.format("Trigger '%s' is configured more than once with the same outcome in state '%s'.", trigger, state));
+                    return;
+                }
+            }
+        }
+        problems.add(String.format(
+                "Trigger '%s' has %s unguarded behaviour(s) among %s in state '%s'. An unguarded behaviour must be the only one for its trigger.",
+                trigger, unguarded, behaviours.size(), state));
+    }
+
+    private static boolean haveSameOutcome(TriggerBehaviour<?, ?> a, TriggerBehaviour<?, ?> b) {
+        if (a.isGuarded() || b.isGuarded() || a.getClass() != b.getClass() || a instanceof DynamicTriggerBehaviour) {
+            return false;
+        }
+        if (a instanceof TransitioningTriggerBehaviour) {
+            Object destination = ((TransitioningTriggerBehaviour<?, ?>) a).getDestination();
+            return destination.equals(((TransitioningTriggerBehaviour<?, ?>) b).getDestination());
+        }
+        return true;
+    }
+
+    /**
+     * Gets the pool on which orthogonal regions handling the same trigger are fired in parallel.
+     *
+     * @return The pool, or null if regions are fired one after the other on the firing thread
+     */
+    public ForkJoinPool getRegionPool() {
+        return regionPool;
+    }
+
+    /**
+     * Fires the orthogonal regions that handle the same trigger in parallel on the supplied pool. This pays off when
+     * regions have costly actions; the actions of different regions must then be safe to run concurrently, and must
+     * not fire the state machine. Guards are evaluated once, on the firing thread, before the regions are fired;
+     * timeouts are armed and cancelled, and transition listeners and observers called, one region at a time.
+     * This configuration is disabled by default.
+     *
+     * @param pool The pool to fire regions on
+     */
+    public void enableParallelRegions(ForkJoinPool pool) {
+        assert pool != null : "pool is null";
+        this.regionPool = pool;
+    }
+
+    /**
+     * Fires orthogonal regions one after the other on the firing thread.
+     * This is the default.
+     */
+    public void disableParallelRegions() {
+        this.regionPool = null;
+    }
+
+    /**
+     * Register an action to call after each matching transition of the state machines using this configuration,
+     * including their orthogonal regions, once the entry actions of the destination state have been executed. Each
+     * key restricts the transitions observed, and a null key matches any; a reentry has the same source and
+     * destination.
+     * <p>
+     * Observers are indexed by their keys, so a transition only calls the observers that match it. Those registered
+     * with a source are called before those registered for any source, then likewise for the trigger and the
+     * destination; observers with the same keys are called in registration order. The index is built by
+     * {@link #toImmutable()}, or on the first transition after a registration for a mutable configuration.
+     *
+     * @param source      The source state to observe, or null for any
+     * @param trigger     The trigger to observe, or null for any
+     * @param destination The destination state to observe, or null for any
+     * @param observer    An action to call with each matching transition
+     */
+    public void addTransitionObserver(TState source, TTrigger trigger, TState destination, Action1<Transition<TState, TTrigger>> observer) {
+        assert observer != null : "observer is null";
+        if (observerRegistrations == null) {
+            observerRegistrations = new ArrayList<>();
+        }
+        observerRegistrations.add(new TransitionObserverIndex.Registration<>(source, trigger, destination, observer));
+        transitionObservers = null;
+    }
+
+    List<TransitionObserverIndex.Registration<TState, TTrigger>> getObserverRegistrations() {
+        return observerRegistrations;
+    }
+
+    /**
+     * @return The index of the transition observers, or null if there are none
+     */
+    TransitionObserverIndex<TState, TTrigger> getTransitionObservers() {
+        if (transitionObservers == null && observerRegistrations != null) {
+            transitionObservers = new TransitionObserverIndex<>(observerRegistrations, stateSymbols.isIdentity());
+        }
+        return transitionObservers;
+    }
+
     /**
      * Return StateRepresentation for the specified state. May return null.
      *
@@ -69,7 +397,8 @@ public class StateMachineConfig<TState,TTrigger> {
      * @return StateRepresentation for the specified state, or null.
      */
     public StateRepresentation<TState, TTrigger> getRepresentation(TState state) {
-        return  stateConfiguration.get(state);
+        int id = stateSymbols.indexOf(state);
+        return id < 0 || id >= representationsById.size() ? null : representationsById.get(id);
     }
 
     /**
@@ -81,15 +410,21 @@ public class StateMachineConfig<TState,TTrigger> {
     private StateRepresentation<TState, TTrigger> getOrCreateRepresentation(TState state) {
         StateRepresentation<TState, TTrigger> result = stateConfiguration.get(state);
         if (result == null) {
-            result = new StateRepresentation<>(state);
+            result = new StateRepresentation<>(state, triggerSymbols);
             stateConfiguration.put(state, result);
+            putById(representationsById, stateSymbols.intern(state), result);
+            modificationCount++;
         }
 
         return result;
     }
 
     public TriggerWithParameters<TState, TTrigger> getTriggerConfiguration(TTrigger trigger) {
-        return triggerConfiguration.get(trigger);
+        return getTriggerConfiguration(triggerSymbols.indexOf(trigger));
+    }
+
+    TriggerWithParameters<TState, TTrigger> getTriggerConfiguration(int triggerId) {
+        return triggerId < 0 || triggerId >= triggerConfigurationsById.size() ? null : triggerConfigurationsById.get(triggerId);
     }
 
     /**
@@ -108,12 +443,178 @@ public class StateMachineConfig<TState,TTrigger> {
         });
     }
 
+    /**
+     * Bulk load unguarded transitions from columnar arrays: edge i accepts triggers[i] in sources[i] and transitions
+     * to destinations[i]. This is equivalent to calling configure(source).permit(trigger, destination) for every
+     * edge, without creating a state configuration per call, except that an edge whose source and destination are
+     * equal, which permit() rejects, is added as configure(source).permitReentry(trigger).
+     *
+     * @param sources      The source state of each edge
+     * @param triggers     The trigger of each edge
+     * @param destinations The destination state of each edge
+     */
+    public void addEdges(TState[] sources, TTrigger[] triggers, TState[] destinations) {
+        assert sources != null : "sources is null";
+        assert triggers != null : "triggers is null";
+        assert destinations != null : "destinations is null";
+        if (sources.length != triggers.length || sources.length != destinations.length) {
+            throw new IllegalStateException("Edge columns differ in length: " + sources.length + " sources, " + triggers.length + " triggers and " + destinations.length + " destinations.");
+        }
+
+        StateRepresentation<TState, TTrigger> representation = null;
+        for (int i = 0; i < sources.length; i++) {
+            // tables are usually grouped by source state, so consecutive edges mostly share their representation
+            if (representation == null || !representation.getUnderlyingState().equals(sources[i])) {
+                representation = getOrCreateRepresentation(sources[i]);
+            }
+            addEdge(representation, triggers[i], destinations[i]);
+        }
+    }
+
+    /**
+     * Add an unguarded transition, which is a reentry if the destination is the state of the representation, as
+     * configured by permitReentry()
+     */
+    private static <S, T> void addEdge(StateRepresentation<S, T> representation, T trigger, S destination) {
+        assert trigger != null : "trigger is null";
+        assert destination != null : "destination is null";
+        representation.addTriggerBehaviour(new TransitioningTriggerBehaviour<>(trigger, destination));
+    }
+
+    /**
+     * Bulk load unguarded transitions from a table with one edge per line, given as source, trigger and destination
+     * separated by the separator character, for example a CSV or TSV file. Fields are trimmed; blank lines and lines
+     * starting with '#' are skipped. As in RFC 4180, a field may be enclosed in double quotes to contain the
+     * separator, with a double quote inside it written twice; it is taken as is, without trimming. A quoted field
+     * cannot span lines. The reader is read to the end but not closed. Edges are added as by
+     * {@link #addEdges(Object[], Object[], Object[])}, so an edge from a state to itself is a reentry.
+     *
+     * @param reader        The table
+     * @param separator     The field separator, such as ',' or '\t'
+     * @param stateParser   Converts a state field to a state
+     * @param triggerParser Converts a trigger field to a trigger
+     * @throws IOException if the table cannot be read
+     * @throws IllegalStateException if a line does not have exactly three fields, has a malformed quoted field, or
+     *                               has a field that does not parse, giving the line number
+     */
+    public void loadEdges(Reader reader, char separator, Func2<String, TState> stateParser, Func2<String, TTrigger> triggerParser) throws IOException {
+        assert reader != null : "reader is null";
+        assert stateParser != null : "stateParser is null";
+        assert triggerParser != null : "triggerParser is null";
+
+        // a table names each state and trigger many times, so every field is parsed once
+        Map<String, TState> states = new HashMap<>();
+        Map<String, TTrigger> triggers = new HashMap<>();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        StateRepresentation<TState, TTrigger> representation = null;
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] fields;
+            if (line.indexOf('"') < 0) {
+                int first = line.indexOf(separator);
+                int second = first < 0 ? -1 : line.indexOf(separator, first + 1);
+                if (second < 0 || line.indexOf(separator, second + 1) >= 0) {
+                    throw new IllegalStateException("Line " + lineNumber + " of the edge table does not have exactly three fields: '" + line + "'.");
+                }
+                fields = new String[]{line.substring(0, first).trim(), line.substring(first + 1, second).trim(), line.substring(second + 1).trim()};
+            } else {
+                fields = splitQuoted(line, separator, lineNumber);
+            }
+            TState source = parseField(states, fields[0], stateParser, lineNumber);
+            TTrigger trigger = parseField(triggers, fields[1], triggerParser, lineNumber);
+            TState destination = parseField(states, fields[2], stateParser, lineNumber);
+            if (representation == null || !representation.getUnderlyingState().equals(source)) {
+                representation = getOrCreateRepresentation(source);
+            }
+            addEdge(representation, trigger, destination);
+        }
+    }
+
+    /**
+     * Split a line of the edge table that contains double quotes into its three fields, unquoting quoted fields
+     */
+    private static String[] splitQuoted(String line, char separator, int lineNumber) {
+        String[] fields = new String[3];
+        int count = 0;
+        int i = 0;
+        while (true) {
+            while (i < line.length() && line.charAt(i) != separator && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            String field;
+            if (i < line.length() && line.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalStateException("Line " + lineNumber + " of the edge table has an unterminated quoted field: '" + line + "'.");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    quoted.append(c);
+                }
+                while (i < line.length() && line.charAt(i) != separator && Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                if (i < line.length() && line.charAt(i) != separator) {
+                    throw new IllegalStateException("Line " + lineNumber + " of the edge table has text after a quoted field: '" + line + "'.");
+                }
+                field = quoted.toString();
+            } else {
+                int end = line.indexOf(separator, i);
+                field = line.substring(i, end < 0 ? line.length() : end).trim();
+                if (field.indexOf('"') >= 0) {
+                    throw new IllegalStateException("Line " + lineNumber + " of the edge table has a double quote inside an unquoted field: '" + line + "'.");
+                }
+                i = end < 0 ? line.length() : end;
+            }
+            if (count == fields.length) {
+                throw new IllegalStateException("Line " + lineNumber + " of the edge table does not have exactly three fields: '" + line + "'.");
+            }
+            fields[count++] = field;
+            if (i >= line.length()) {
+                break;
+            }
+            i++; // the separator
+        }
+        if (count != fields.length) {
+            throw new IllegalStateException("Line " + lineNumber + " of the edge table does not have exactly three fields: '" + line + "'.");
+        }
+        return fields;
+    }
+
+    private static <V> V parseField(Map<String, V> parsed, String field, Func2<String, V> parser, int lineNumber) {
+        V result = parsed.get(field);
+        if (result == null) {
+            result = parser.call(field);
+            if (result == null) {
+                throw new IllegalStateException("Line " + lineNumber + " of the edge table has a field that does not parse: '" + field + "'.");
+            }
+            parsed.put(field, result);
+        }
+        return result;
+    }
+
     private void saveTriggerConfiguration(TriggerWithParameters<TState, TTrigger> trigger) {
         if (triggerConfiguration.containsKey(trigger.getTrigger())) {
             throw new IllegalStateException("Parameters for the trigger '" + trigger + "' have already been configured.");
         }
 
         triggerConfiguration.put(trigger.getTrigger(), trigger);
+        putById(triggerConfigurationsById, triggerSymbols.intern(trigger.getTrigger()), trigger);
+        modificationCount++;
     }
 
     /**
@@ -0,0 +1,163 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func2;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Holds the current version of a configuration shared by running state machines, so that it can be replaced
+ * without restarting them.
+ * <p>
+ * Publishing stores an immutable copy of the configuration in a single volatile reference: state machines read it
+ * without locking when a trigger is fired, and a fire that has started completes on the version it started with.
+ * Publishers are serialised among themselves only.
+ * <p>
+ * A state machine that skips versions applies the state mapping of each version it skipped, in order. For this, each
+ * version keeps the state mappings published before it, along with the set of states of their versions, but not the
+ * earlier configurations themselves, which are released once no machine uses them. Timeouts of states that the new
+ * version configures identically keep running through a switch.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class StateMachineConfigHolder<S, T> {
+
+    private volatile Version<S, T> current;
+
+    /**
+     * Construct a holder whose first version is the supplied configuration
+     *
+     * @param config The initial configuration
+     */
+    public StateMachineConfigHolder(StateMachineConfig<S, T> config) {
+        assert config != null : "config is null";
+        current = new Version<>(1, config.toImmutable(), null);
+    }
+
+    /**
+     * Replace the configuration. State machines switch to it the next time a trigger is fired on them.
+     *
+     * @param config The new configuration; an immutable copy is taken
+     * @return The number of the new version
+     */
+    public long publish(StateMachineConfig<S, T> config) {
+        return publish(config, null);
+    }
+
+    /**
+     * Replace the configuration. State machines switch to it the next time a trigger is fired on them; a machine
+     * whose current state is not configured in the new version is moved to the state returned by the mapping,
+     * without executing exit or entry actions. A machine that skips versions applies the mappings of the versions
+     * it skipped first, so the mapping receives the states of the version published just before it.
+     *
+     * @param config       The new configuration; an immutable copy is taken
+     * @param stateMapping Maps states missing from the new configuration to their replacement, may be null
+     * @return The number of the new version
+     */
+    public synchronized long publish(StateMachineConfig<S, T> config, Func2<S, S> stateMapping) {
+        assert config != null : "config is null";
+        Version<S, T> previous = current;
+        long number = previous.number + 1;
+        StateMachineConfig<S, T> immutable = config.toImmutable();
+        Mapping<S> mappings = stateMapping == null
+                ? previous.mappings
+                : new Mapping<>(number, stateMapping, statesOf(immutable), previous.mappings);
+        Version<S, T> version = new Version<>(number, immutable, mappings);
+        current = version;
+        return version.number;
+    }
+
+    /**
+     * The current configuration
+     *
+     * @return The current configuration, which is immutable
+     */
+    public StateMachineConfig<S, T> getConfig() {
+        return current.config;
+    }
+
+    /**
+     * The number of the current version, starting at 1
+     *
+     * @return The number of the current version
+     */
+    public long getVersion() {
+        return current.number;
+    }
+
+    Version<S, T> current() {
+        return current;
+    }
+
+    private static <S, T> Set<S> statesOf(StateMachineConfig<S, T> config) {
+        Set<S> states = config.getStateSymbols().isIdentity()
+                ? Collections.newSetFromMap(new IdentityHashMap<S, Boolean>())
+                : new HashSet<S>();
+        for (StateRepresentation<S, T> representation : config.getRepresentations()) {
+            states.add(representation.getUnderlyingState());
+        }
+        return states;
+    }
+
+    static final class Version<S, T> {
+
+        final long number;
+        final StateMachineConfig<S, T> config;
+        private final Mapping<S> mappings; // of this version and the earlier ones, latest first, null if none
+
+        Version(long number, StateMachineConfig<S, T> config, Mapping<S> mappings) {
+            this.number = number;
+            this.config = config;
+            this.mappings = mappings;
+        }
+
+        /**
+         * Map a state of a machine switching to this version, applying the mapping of every version published after
+         * the one it is on, in order, to the states each of them does not configure
+         *
+         * @param state       The state of the machine
+         * @param fromVersion The number of the version the machine is on
+         * @return The state in this version
+         */
+        S mapState(S state, long fromVersion) {
+            return mappings == null ? state : mappings.apply(state, fromVersion);
+        }
+    }
+
+    /**
+     * The state mapping published with a version, with the states that version configures
+     */
+    private static final class Mapping<S> {
+
+        private final long number;
+        private final Func2<S, S> stateMapping;
+        private final Set<S> states;
+        private final Mapping<S> previous; // of the latest earlier version with a state mapping, or null
+
+        Mapping(long number, Func2<S, S> stateMapping, Set<S> states, Mapping<S> previous) {
+            this.number = number;
+            this.stateMapping = stateMapping;
+            this.states = states;
+            this.previous = previous;
+        }
+
+        S apply(S state, long fromVersion) {
+            if (number <= fromVersion) {
+                return state;
+            }
+            if (previous != null) {
+                state = previous.apply(state, fromVersion);
+            }
+            if (!states.contains(state)) {
+                S mapped = stateMapping.call(state);
+                if (mapped != null) {
+                    return mapped;
+                }
+            }
+            return state;
+        }
+    }
+}
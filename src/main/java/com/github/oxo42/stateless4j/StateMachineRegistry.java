@@ -0,0 +1,281 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
+import com.github.oxo42.stateless4j.timers.Clock;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * State machines sharing one configuration, identified by key, that are created on first use and evicted to a
+ * {@link PassivationStore} when memory is needed, so that memory stays bounded regardless of the number of keys.
+ * <p>
+ * Fires for the same key are serialised by one of a fixed set of striped locks, while fires for keys on different
+ * stripes run in parallel. When more machines than the maximum size are resident, machines are evicted by a clock
+ * hand that sweeps over them: each fire raises a machine's frequency, up to 15, and the hand lowers it, evicting
+ * machines found at zero, so frequently fired machines survive sweeps that evict machines fired once. Machines idle
+ * for longer than the maximum idle time are evicted by the sweep regardless of their frequency, or by
+ * {@link #evictIdle()}. An evicted machine's state is saved and loaded again on its next fire; other state, such as
+ * deferred triggers or armed timeouts, is not kept, and a rehydrated machine resumes in its saved state without
+ * executing entry actions.
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class StateMachineRegistry<K, S, T> {
+
+    private static final int MAX_FREQUENCY = 15;
+
+    private final StateMachineConfig<S, T> config;
+    private final S initialState;
+    private final PassivationStore<K, S> store;
+    private final int maxSize;
+    private final long maxIdleNanos;
+    private final Clock clock;
+    private final ConcurrentHashMap<K, Resident<S, T>> residents = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<Map.Entry<K, Resident<S, T>>> hand; // guarded by evictionLock
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+
+    /**
+     * @param config       The configuration of the machines, of which an immutable copy is shared
+     * @param initialState The state of machines that were never saved
+     * @param store        The storage of evicted machines
+     * @param maxSize      The maximum number of resident machines
+     * @param maxIdleTime  The time after which an idle machine is evicted
+     * @param unit         The unit of maxIdleTime
+     */
+    public StateMachineRegistry(StateMachineConfig<S, T> config, S initialState, PassivationStore<K, S> store,
+                                int maxSize, long maxIdleTime, TimeUnit unit) {
+        this(config, initialState, store, maxSize, maxIdleTime, unit, Clock.SYSTEM);
+    }
+
+    /**
+     * @param config       The configuration of the machines, of which an immutable copy is shared
+     * @param initialState The state of machines that were never saved
+     * @param store        The storage of evicted machines
+     * @param maxSize      The maximum number of resident machines
+     * @param maxIdleTime  The time after which an idle machine is evicted
+     * @param unit         The unit of maxIdleTime
+     * @param clock        The source of time for idleness
+     */
+    public StateMachineRegistry(StateMachineConfig<S, T> config, S initialState, PassivationStore<K, S> store,
+                                int maxSize, long maxIdleTime, TimeUnit unit, Clock clock) {
+        assert config != null : "config is null";
+        assert store != null : "store is null";
+        assert unit != null : "unit is null";
+        assert clock != null : "clock is null";
+        if (maxSize <= 0) {
+            throw new IllegalStateException("The maximum size must be positive: " + maxSize);
+        }
+        this.config = config.toImmutable();
+        this.initialState = initialState;
+        this.store = store;
+        this.maxSize = maxSize;
+        this.maxIdleNanos = unit.toNanos(maxIdleTime);
+        this.clock = clock;
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1) << 1;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Fire a trigger on the machine with the key, rehydrating it if it is not resident
+     *
+     * @param key     The key of the machine
+     * @param trigger The trigger to fire
+     * @param args    The arguments, which must match the parameters configured for the trigger
+     */
+    public void fire(K key, T trigger, Object... args) {
+        assert key != null : "key is null";
+        ReentrantLock lock = stripeOf(key);
+        lock.lock();
+        try {
+            Resident<S, T> resident = residents.get(key);
+            if (resident == null) {
+                S saved = store.load(key);
+                if (saved != null) {
+                    rehydrations.incrementAndGet();
+                }
+                resident = new Resident<>(saved == null ? createMachine(key, initialState, false) : createMachine(key, saved, true));
+                residents.put(key, resident);
+            }
+            resident.lastAccess = clock.nanoTime();
+            if (resident.frequency < MAX_FREQUENCY) {
+                resident.frequency++;
+            }
+            resident.machine.publicFire(trigger, args.length, ParameterConversion.argumentAt(args, 0),
+                    ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args);
+        } finally {
+            lock.unlock();
+        }
+        if (residents.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Create the machine for a key; override to customise machines, for example with
+     * {@link StateMachine#onUnhandledTrigger}
+     *
+     * @param key         The key of the machine
+     * @param state       The state to create the machine in
+     * @param rehydrated  True if the state was loaded from the store, in which case the machine must resume in it
+     *                    with {@link StateMachine#resume} rather than enter it again
+     * @return The machine
+     */
+    protected StateMachine<S, T> createMachine(K key, S state, boolean rehydrated) {
+        return rehydrated ? StateMachine.resume(state, config) : new StateMachine<>(state, config);
+    }
+
+    /**
+     * The state of the machine with the key, which is loaded from the store if the machine is not resident
+     *
+     * @param key The key of the machine
+     * @return The state of the machine
+     */
+    public S getState(K key) {
+        ReentrantLock lock = stripeOf(key);
+        lock.lock();
+        try {
+            Resident<S, T> resident = residents.get(key);
+            if (resident != null) {
+                return resident.machine.getState();
+            }
+            S saved = store.load(key);
+            return saved == null ? initialState : saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of resident machines
+     */
+    public int size() {
+        return residents.size();
+    }
+
+    /**
+     * @return The number of machines evicted so far
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of machines loaded from the store so far
+     */
+    public long getRehydrationCount() {
+        return rehydrations.get();
+    }
+
+    /**
+     * Evict every machine that has been idle for longer than the maximum idle time; call periodically if keys may
+     * go quiet while the registry is below its maximum size
+     *
+     * @return The number of machines evicted
+     */
+    public int evictIdle() {
+        long now = clock.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<K, Resident<S, T>> entry : residents.entrySet()) {
+            if (now - entry.getValue().lastAccess > maxIdleNanos && passivate(entry.getKey(), entry.getValue(), now, true)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Sweep the clock hand until the registry is back within its maximum size. Only one thread sweeps at a time;
+     * others carry on firing.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.nanoTime();
+            // every frequency drops to zero within MAX_FREQUENCY + 1 sweeps
+            long steps = (long) (MAX_FREQUENCY + 2) * residents.size();
+            while (residents.size() > maxSize && steps-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = residents.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<K, Resident<S, T>> entry = hand.next();
+                Resident<S, T> resident = entry.getValue();
+                if (now - resident.lastAccess > maxIdleNanos || resident.frequency == 0) {
+                    passivate(entry.getKey(), resident, now, false);
+                } else {
+                    lowerFrequency(entry.getKey(), resident);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Lower the frequency of a machine under its stripe lock, so that it does not race with the raise of a fire
+     */
+    private void lowerFrequency(K key, Resident<S, T> resident) {
+        ReentrantLock lock = stripeOf(key);
+        lock.lock();
+        try {
+            if (resident.frequency > 0) {
+                resident.frequency--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Save and remove a machine, unless it was fired since it was chosen
+     */
+    private boolean passivate(K key, Resident<S, T> resident, long now, boolean idleOnly) {
+        ReentrantLock lock = stripeOf(key);
+        lock.lock();
+        try {
+            boolean idle = now - resident.lastAccess > maxIdleNanos;
+            if (residents.get(key) != resident || !idle && (idleOnly || resident.frequency > 0)) {
+                return false;
+            }
+            store.save(key, resident.machine.getState());
+            residents.remove(key);
+            evictions.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeOf(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Resident<S, T> {
+
+        final StateMachine<S, T> machine;
+        volatile long lastAccess;
+        volatile int frequency; // raised by fires and lowered by the clock hand, both under the key's stripe lock
+
+        Resident(StateMachine<S, T> machine) {
+            this.machine = machine;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.github.oxo42.stateless4j;
 
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
+import com.github.oxo42.stateless4j.delegates.Action;
 import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.timers.TimedTrigger;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
 
@@ -11,14 +14,30 @@ public class StateRepresentation<S, T> {
 
     private final S state;
 
-    private final Map<T, List<TriggerBehaviour<S, T>>> triggerBehaviours = new HashMap<>();
-    private final List<Action2<Transition<S, T>, Object[]>> entryActions = new ArrayList<>();
-    private final List<Action1<Transition<S, T>>> exitActions = new ArrayList<>();
-    private final List<StateRepresentation<S, T>> substates = new ArrayList<>();
+    // the collections are shared empty ones until something is added, and small ones are compact, as large
+    // configurations have many states with one or two triggers and no actions
+    private Map<T, List<TriggerBehaviour<S, T>>> triggerBehaviours = Collections.emptyMap();
+    private List<StateAction<S, T>> entryActions = Collections.emptyList();
+    private List<StateAction<S, T>> exitActions = Collections.emptyList();
+    private List<StateRepresentation<S, T>> substates = Collections.emptyList();
+    private List<TimedTrigger<T>> timeouts; // null until a timeout is configured
+    private List<S> regions; // initial states of the orthogonal regions, null until a region is configured
     private StateRepresentation<S, T> superstate; // null
+    private boolean frozen;
+    private final SymbolTable<T> triggerSymbols; // null unless the representation belongs to a configuration
+    private List<TriggerBehaviour<S, T>>[] behavioursByTrigger; // indexed by trigger id - firstTriggerId, null until a behaviour is added
+    private int firstTriggerId;
 
     public StateRepresentation(S state) {
+        this(state, null);
+    }
+
+    /**
+     * @param triggerSymbols The trigger ids of the configuration the representation belongs to
+     */
+    StateRepresentation(S state, SymbolTable<T> triggerSymbols) {
         this.state = state;
+        this.triggerSymbols = triggerSymbols;
     }
 
     protected Map<T, List<TriggerBehaviour<S, T>>> getTriggerBehaviours() {
@@ -37,66 +56,193 @@ public class StateRepresentation<S, T> {
         return result;
     }
 
+    /**
+     * Like {@link #tryFindHandler(Object, Object...)}, but returns the first behaviour whose guard condition is met
+     * without evaluating the remaining guards, so it does not detect guards that are not mutually exclusive
+     *
+     * @param trigger The trigger
+     * @param args    Trigger parameters to evaluate guards with
+     * @return The first behaviour whose guard condition is met, or null
+     */
+    public TriggerBehaviour<S, T> tryFindFirstHandler(T trigger, Object... args) {
+        TriggerBehaviour<S, T> result = tryFindFirstLocalHandler(trigger, args);
+        if (result == null && superstate != null) {
+            result = superstate.tryFindFirstHandler(trigger, args);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #tryFindHandler(Object, Object...)}, with the trigger looked up by its id in the configuration and
+     * the arguments passed as to {@link TriggerBehaviour#isGuardConditionMet(int, Object, Object, Object, Object[])}
+     */
+    TriggerBehaviour<S, T> tryFindHandler(int triggerId, T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        TriggerBehaviour<S, T> result = selectHandler(behavioursOf(triggerId, trigger), trigger, count, arg0, arg1, arg2, args);
+        if (result == null && superstate != null) {
+            result = superstate.tryFindHandler(triggerId, trigger, count, arg0, arg1, arg2, args);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #tryFindFirstHandler(Object, Object...)}, with the trigger looked up by its id in the configuration
+     * and the arguments passed as to {@link TriggerBehaviour#isGuardConditionMet(int, Object, Object, Object, Object[])}
+     */
+    TriggerBehaviour<S, T> tryFindFirstHandler(int triggerId, T trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        TriggerBehaviour<S, T> result = selectFirstHandler(behavioursOf(triggerId, trigger), count, arg0, arg1, arg2, args);
+        if (result == null && superstate != null) {
+            result = superstate.tryFindFirstHandler(triggerId, trigger, count, arg0, arg1, arg2, args);
+        }
+        return result;
+    }
+
+    private List<TriggerBehaviour<S, T>> behavioursOf(int triggerId, T trigger) {
+        if (triggerSymbols == null) {
+            return triggerBehaviours.get(trigger);
+        }
+        int index = triggerId - firstTriggerId;
+        return behavioursByTrigger == null || triggerId < 0 || index < 0 || index >= behavioursByTrigger.length
+                ? null
+                : behavioursByTrigger[index];
+    }
+
     TriggerBehaviour<S, T> tryFindLocalHandler(T trigger, Object... args/*, out TriggerBehaviour handler*/) {
-        List<TriggerBehaviour<S, T>> possible = triggerBehaviours.get(trigger);
+        return selectHandler(triggerBehaviours.get(trigger), trigger, args.length, ParameterConversion.argumentAt(args, 0),
+                ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args);
+    }
+
+    private TriggerBehaviour<S, T> selectHandler(List<TriggerBehaviour<S, T>> possible, T trigger,
+                                                 int count, Object arg0, Object arg1, Object arg2, Object[] args) {
         if (possible == null) {
             return null;
         }
 
-        List<TriggerBehaviour<S, T>> actual = new ArrayList<>();
+        TriggerBehaviour<S, T> result = null;
         for (TriggerBehaviour<S, T> triggerBehaviour : possible) {
-            if (triggerBehaviour.isGuardConditionMet(args)) {
-                actual.add(triggerBehaviour);
+            if (triggerBehaviour.isGuardConditionMet(count, arg0, arg1, arg2, args)) {
+                if (result != null) {
+                    throw new IllegalStateException("Multiple permitted exit transitions are configured from state '" + state + "' for trigger '" + trigger + "'. Guard clauses must be mutually exclusive.");
+                }
+                result = triggerBehaviour;
             }
         }
+        return result;
+    }
+
+    TriggerBehaviour<S, T> tryFindFirstLocalHandler(T trigger, Object... args) {
+        return selectFirstHandler(triggerBehaviours.get(trigger), args.length, ParameterConversion.argumentAt(args, 0),
+                ParameterConversion.argumentAt(args, 1), ParameterConversion.argumentAt(args, 2), args);
+    }
 
-        if (actual.size() > 1) {
-            throw new IllegalStateException("Multiple permitted exit transitions are configured from state '" + state + "' for trigger '" + trigger + "'. Guard clauses must be mutually exclusive.");
+    private TriggerBehaviour<S, T> selectFirstHandler(List<TriggerBehaviour<S, T>> possible,
+                                                      int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (possible == null) {
+            return null;
         }
 
-        return actual.isEmpty() ? null : actual.get(0);
+        for (TriggerBehaviour<S, T> triggerBehaviour : possible) {
+            if (triggerBehaviour.isGuardConditionMet(count, arg0, arg1, arg2, args)) {
+                return triggerBehaviour;
+            }
+        }
+        return null;
     }
 
-    public void addEntryAction(final T trigger, final Action2<Transition<S, T>, Object[]> action) {
-        assert action != null : "action is null";
+    public void addEntryAction(Action action) {
+        putEntryAction(new StateAction<S, T>(null, action, null, null));
+    }
 
-        entryActions.add(new Action2<Transition<S, T>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T> t, Object[] args) {
-                T trans_trigger = t.getTrigger();
-                if (trans_trigger != null && trans_trigger.equals(trigger)) {
-                    action.doIt(t, args);
-                }
-            }
-        });
+    public void addEntryAction(Action1<Transition<S, T>> action) {
+        putEntryAction(new StateAction<>(null, null, action, null));
     }
 
     public void addEntryAction(Action2<Transition<S, T>, Object[]> action) {
-        assert action != null : "action is null";
-        entryActions.add(action);
+        putEntryAction(new StateAction<>(null, null, null, action));
+    }
+
+    public void addEntryAction(T trigger, Action action) {
+        putEntryAction(new StateAction<S, T>(trigger, action, null, null));
+    }
+
+    public void addEntryAction(T trigger, Action1<Transition<S, T>> action) {
+        putEntryAction(new StateAction<>(trigger, null, action, null));
+    }
+
+    public void addEntryAction(T trigger, Action2<Transition<S, T>, Object[]> action) {
+        putEntryAction(new StateAction<>(trigger, null, null, action));
+    }
+
+    private void putEntryAction(StateAction<S, T> action) {
+        checkNotFrozen();
+        entryActions = added(entryActions, entryActions.size(), action);
     }
 
     public void insertEntryAction(Action2<Transition<S, T>, Object[]> action) {
-        assert action != null : "action is null";
-        entryActions.add(0, action);
+        checkNotFrozen();
+        entryActions = added(entryActions, 0, new StateAction<S, T>(null, null, null, action));
+    }
+
+    public void addExitAction(Action action) {
+        checkNotFrozen();
+        exitActions = added(exitActions, exitActions.size(), new StateAction<S, T>(null, action, null, null));
     }
 
     public void addExitAction(Action1<Transition<S, T>> action) {
-        assert action != null : "action is null";
-        exitActions.add(action);
+        checkNotFrozen();
+        exitActions = added(exitActions, exitActions.size(), new StateAction<>(null, null, action, null));
+    }
+
+    /**
+     * Add to a list that may be a shared empty or singleton list
+     *
+     * @return The list with the element, which is a singleton list if it is the only one
+     */
+    private static <E> List<E> added(List<E> list, int index, E element) {
+        if (list.isEmpty()) {
+            return Collections.singletonList(element);
+        }
+        if (!(list instanceof ArrayList)) {
+            list = new ArrayList<>(list);
+        }
+        list.add(index, element);
+        return list;
+    }
+
+    /**
+     * @return An exactly sized copy of the list, or a shared empty or singleton list
+     */
+    private static <E> List<E> compacted(List<E> list) {
+        switch (list.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(list.get(0));
+            default:
+                return Collections.unmodifiableList(new ArrayList<>(list));
+        }
     }
 
     public void enter(Transition<S, T> transition, Object... entryArgs) {
+        assert entryArgs != null : "entryArgs is null";
+        enter(transition, entryArgs.length, ParameterConversion.argumentAt(entryArgs, 0),
+                ParameterConversion.argumentAt(entryArgs, 1), ParameterConversion.argumentAt(entryArgs, 2), entryArgs);
+    }
+
+    /**
+     * Like {@link #enter(Transition, Object...)}, with the arguments passed as to
+     * {@link TriggerBehaviour#isGuardConditionMet(int, Object, Object, Object, Object[])}
+     */
+    void enter(Transition<S, T> transition, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
         assert transition != null : "transition is null";
 
         if (transition.isReentry()) {
-            executeEntryActions(transition, entryArgs);
+            executeEntryActions(transition, count, arg0, arg1, arg2, args);
         } else if (!includes(transition.getSource())) {
             if (superstate != null) {
-                superstate.enter(transition, entryArgs);
+                superstate.enter(transition, count, arg0, arg1, arg2, args);
             }
 
-            executeEntryActions(transition, entryArgs);
+            executeEntryActions(transition, count, arg0, arg1, arg2, args);
         }
     }
 
@@ -113,29 +259,119 @@ public class StateRepresentation<S, T> {
         }
     }
 
-    void executeEntryActions(Transition<S, T> transition, Object[] entryArgs) {
+    void executeEntryActions(Transition<S, T> transition, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
         assert transition != null : "transition is null";
-        assert entryArgs != null : "entryArgs is null";
-        for (Action2<Transition<S, T>, Object[]> action : entryActions) {
-            action.doIt(transition, entryArgs);
+        for (int i = 0, n = entryActions.size(); i < n; i++) {
+            entryActions.get(i).doIt(transition, count, arg0, arg1, arg2, args);
         }
     }
 
     void executeExitActions(Transition<S, T> transition) {
         assert transition != null : "transition is null";
-        for (Action1<Transition<S, T>> action : exitActions) {
-            action.doIt(transition);
+        for (int i = 0, n = exitActions.size(); i < n; i++) {
+            exitActions.get(i).doIt(transition, 0, null, null, null, null);
         }
     }
 
     public void addTriggerBehaviour(TriggerBehaviour<S, T> triggerBehaviour) {
-        List<TriggerBehaviour<S, T>> allowed;
-        if (!triggerBehaviours.containsKey(triggerBehaviour.getTrigger())) {
-            allowed = new ArrayList<>();
-            triggerBehaviours.put(triggerBehaviour.getTrigger(), allowed);
+        checkNotFrozen();
+        List<TriggerBehaviour<S, T>> allowed = triggerBehaviours.get(triggerBehaviour.getTrigger());
+        // most triggers have a single behaviour per state
+        List<TriggerBehaviour<S, T>> added = added(allowed == null ? Collections.<TriggerBehaviour<S, T>>emptyList() : allowed,
+                allowed == null ? 0 : allowed.size(), triggerBehaviour);
+        if (added != allowed) {
+            putBehaviours(triggerBehaviour.getTrigger(), added);
+        }
+    }
+
+    public void addTimeout(TimedTrigger<T> timeout) {
+        checkNotFrozen();
+        assert timeout != null : "timeout is null";
+        if (timeouts == null) {
+            timeouts = new ArrayList<>();
+        }
+        timeouts.add(timeout);
+    }
+
+    public List<TimedTrigger<T>> getTimeouts() {
+        return timeouts == null ? Collections.<TimedTrigger<T>>emptyList() : timeouts;
+    }
+
+    public void addRegion(S initialState) {
+        checkNotFrozen();
+        assert initialState != null : "initialState is null";
+        if (regions == null) {
+            regions = new ArrayList<>();
+        }
+        regions.add(initialState);
+    }
+
+    public List<S> getRegions() {
+        return regions == null ? Collections.<S>emptyList() : regions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putBehaviours(T trigger, List<TriggerBehaviour<S, T>> behaviours) {
+        boolean identity = triggerSymbols != null && triggerSymbols.isIdentity();
+        if (triggerBehaviours.isEmpty()) {
+            triggerBehaviours = new SmallArrayMap<>(identity);
+        } else if (triggerBehaviours.size() == SmallArrayMap.MAX_SIZE && !triggerBehaviours.containsKey(trigger)) {
+            triggerBehaviours = identity
+                    ? new IdentityHashMap<T, List<TriggerBehaviour<S, T>>>(triggerBehaviours)
+                    : new HashMap<T, List<TriggerBehaviour<S, T>>>(triggerBehaviours);
+        }
+        triggerBehaviours.put(trigger, behaviours);
+        if (triggerSymbols != null) {
+            // only the range of ids the state handles is held
+            int id = triggerSymbols.intern(trigger);
+            if (behavioursByTrigger == null) {
+                behavioursByTrigger = new List[1];
+                firstTriggerId = id;
+            } else if (id < firstTriggerId || id - firstTriggerId >= behavioursByTrigger.length) {
+                int first = Math.min(id, firstTriggerId);
+                int last = Math.max(id, firstTriggerId + behavioursByTrigger.length - 1);
+                List<TriggerBehaviour<S, T>>[] grown = new List[last - first + 1];
+                System.arraycopy(behavioursByTrigger, 0, grown, firstTriggerId - first, behavioursByTrigger.length);
+                behavioursByTrigger = grown;
+                firstTriggerId = first;
+            }
+            behavioursByTrigger[id - firstTriggerId] = behaviours;
+        }
+    }
+
+    /**
+     * Copy everything but the superstate and substates, which refer to other representations
+     *
+     * @param triggerSymbols The trigger ids of the configuration the copy belongs to
+     */
+    StateRepresentation<S, T> copy(SymbolTable<T> triggerSymbols) {
+        StateRepresentation<S, T> copy = new StateRepresentation<>(state, triggerSymbols);
+        for (Map.Entry<T, List<TriggerBehaviour<S, T>>> entry : triggerBehaviours.entrySet()) {
+            copy.putBehaviours(entry.getKey(), compacted(entry.getValue()));
+        }
+        copy.entryActions = compacted(entryActions);
+        copy.exitActions = compacted(exitActions);
+        if (timeouts != null) {
+            copy.timeouts = compacted(timeouts);
+        }
+        if (regions != null) {
+            copy.regions = compacted(regions);
+        }
+        return copy;
+    }
+
+    /**
+     * Reject any further change to the representation
+     */
+    void freeze() {
+        substates = compacted(substates);
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The representation of state '" + state + "' belongs to an immutable configuration.");
         }
-        allowed = triggerBehaviours.get(triggerBehaviour.getTrigger());
-        allowed.add(triggerBehaviour);
     }
 
     public StateRepresentation<S, T> getSuperstate() {
@@ -143,6 +379,7 @@ public class StateRepresentation<S, T> {
     }
 
     public void setSuperstate(StateRepresentation<S, T> value) {
+        checkNotFrozen();
         superstate = value;
     }
 
@@ -151,8 +388,9 @@ public class StateRepresentation<S, T> {
     }
 
     public void addSubstate(StateRepresentation<S, T> substate) {
+        checkNotFrozen();
         assert substate != null : "substate is null";
-        substates.add(substate);
+        substates = added(substates, substates.size(), substate);
     }
 
     public boolean includes(S stateToCheck) {
@@ -187,4 +425,103 @@ public class StateRepresentation<S, T> {
 
         return new ArrayList<>(result);
     }
+
+    /**
+     * Mark the triggers that {@link #getPermittedTriggers(Object...)} would list without arguments, by the ordinals
+     * of their enum constants, in one pass over the behaviours of this state and its superstates without allocating
+     *
+     * @param permitted The set to add the ordinals to, or null to return them as a mask
+     * @return The mask of the ordinals, if permitted is null
+     */
+    long permittedTriggerMask(BitSet permitted) {
+        long mask = 0;
+        for (StateRepresentation<S, T> r = this; r != null; r = r.superstate) {
+            if (r.triggerSymbols == null) {
+                for (List<TriggerBehaviour<S, T>> behaviours : r.triggerBehaviours.values()) {
+                    mask = markIfPermitted(behaviours, mask, permitted);
+                }
+            } else if (r.behavioursByTrigger != null) {
+                for (List<TriggerBehaviour<S, T>> behaviours : r.behavioursByTrigger) {
+                    if (behaviours != null) {
+                        mask = markIfPermitted(behaviours, mask, permitted);
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static <S, T> long markIfPermitted(List<TriggerBehaviour<S, T>> behaviours, long mask, BitSet permitted) {
+        T trigger = behaviours.get(0).getTrigger();
+        if (!(trigger instanceof Enum)) {
+            throw new IllegalStateException("Permitted trigger masks require enum triggers: " + trigger);
+        }
+        int ordinal = ((Enum<?>) trigger).ordinal();
+        if (permitted == null && ordinal >= Long.SIZE) {
+            throw new IllegalStateException("Trigger '" + trigger + "' does not fit in a 64 bit mask; use a BitSet.");
+        }
+        if (permitted != null ? permitted.get(ordinal) : (mask & 1L << ordinal) != 0) {
+            return mask; // permitted by a substate
+        }
+        for (int i = 0, n = behaviours.size(); i < n; i++) {
+            if (behaviours.get(i).isGuardConditionMet(0, null, null, null, null)) {
+                if (permitted != null) {
+                    permitted.set(ordinal);
+                }
+                return mask | 1L << ordinal;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * An entry or exit action, held as given in the slot of its kind rather than wrapped in adapters, so that each
+     * kind is called from its own call site
+     */
+    private static final class StateAction<S, T> {
+
+        private final T trigger; // null unless the action only runs when entering by this trigger
+        private final Action action;
+        private final Action1<Transition<S, T>> transitionAction;
+        private final Action2<Transition<S, T>, Object[]> argsAction;
+
+        StateAction(T trigger, Action action, Action1<Transition<S, T>> transitionAction,
+                    Action2<Transition<S, T>, Object[]> argsAction) {
+            assert action != null || transitionAction != null || argsAction != null : "action is null";
+            this.trigger = trigger;
+            this.action = action;
+            this.transitionAction = transitionAction;
+            this.argsAction = argsAction;
+        }
+
+        void doIt(Transition<S, T> transition, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+            if (trigger != null && !trigger.equals(transition.getTrigger())) {
+                return;
+            }
+            if (action != null) {
+                action.doIt();
+            } else if (transitionAction != null) {
+                transitionAction.doIt(transition);
+            } else if (argsAction instanceof ArgumentsAction) {
+                ((ArgumentsAction<S, T>) argsAction).doIt(transition, arg0, arg1, arg2);
+            } else {
+                argsAction.doIt(transition, args != null ? args : ParameterConversion.pack(count, arg0, arg1, arg2));
+            }
+        }
+    }
+
+    /**
+     * An entry action of a trigger with up to three parameters, which can be called with the arguments passed
+     * separately as well as in an array; see {@link com.github.oxo42.stateless4j.triggers.ArgumentsFunc}
+     */
+    abstract static class ArgumentsAction<S, T> implements Action2<Transition<S, T>, Object[]> {
+
+        @Override
+        public void doIt(Transition<S, T> transition, Object[] args) {
+            doIt(transition, ParameterConversion.argumentAt(args, 0), ParameterConversion.argumentAt(args, 1),
+                    ParameterConversion.argumentAt(args, 2));
+        }
+
+        abstract void doIt(Transition<S, T> transition, Object arg0, Object arg1, Object arg2);
+    }
 }
@@ -0,0 +1,351 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.DynamicTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Explores the states reachable from an initial state of a configuration, without firing any machine, and reports
+ * unreachable states, sink states and unhandled triggers.
+ * <p>
+ * The exploration is a breadth-first search whose frontier is split into ranges on a fork/join pool, so that workers
+ * that finish early steal the remaining ranges; each state is expanded once, by the worker that first reaches it. A
+ * state's superstates count as reachable with it, and the initial states of its regions are reached when it is.
+ * <p>
+ * Guards are not evaluated by default: any guarded behaviour may be taken or not, so a trigger whose behaviours are
+ * all guarded may also fall through to the superstate. With a guard valuation, only the guarded behaviours it
+ * accepts are taken. Destinations of dynamic transitions are chosen at runtime, so they are not explored; states
+ * with such transitions are reported, as the reachable states may be incomplete.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class StateSpaceAnalyzer<S, T> {
+
+    private static final int[] NO_SUCCESSORS = new int[0];
+
+    private final StateMachineConfig<S, T> config;
+    private final Set<T> extraTriggers = new LinkedHashSet<>();
+    private Func3<S, TriggerBehaviour<S, T>, Boolean> guardValuation; // null: guards are nondeterministic
+
+    /**
+     * @param config The configuration to analyse, of which an immutable copy is taken
+     */
+    public StateSpaceAnalyzer(StateMachineConfig<S, T> config) {
+        assert config != null : "config is null";
+        this.config = config.toImmutable();
+    }
+
+    /**
+     * Also check triggers that no state is configured with, for example all the values of a trigger enum
+     *
+     * @param triggers The triggers
+     */
+    public void addTriggers(Iterable<T> triggers) {
+        assert triggers != null : "triggers is null";
+        for (T trigger : triggers) {
+            extraTriggers.add(trigger);
+        }
+    }
+
+    /**
+     * Decide guards instead of treating them as nondeterministic. The valuation is called concurrently from the
+     * threads of the pool.
+     *
+     * @param guardValuation Given the state the machine is in and a guarded behaviour, whether the guard is met;
+     *                       null to treat guards as nondeterministic again
+     */
+    public void setGuardValuation(Func3<S, TriggerBehaviour<S, T>, Boolean> guardValuation) {
+        this.guardValuation = guardValuation;
+    }
+
+    /**
+     * Explore the states reachable from the initial state
+     *
+     * @param initialState The state to start from
+     * @param pool         The pool to explore on
+     * @return The findings
+     */
+    public StateSpaceReport<S, T> analyze(S initialState, ForkJoinPool pool) {
+        assert initialState != null : "initialState is null";
+        assert pool != null : "pool is null";
+        Exploration exploration = new Exploration();
+        exploration.index(initialState);
+        exploration.explore(exploration.stateIds.get(initialState), pool);
+        return exploration.report();
+    }
+
+    /**
+     * The state of one analysis. States and triggers are numbered up front, so that workers only read shared maps
+     * and write the slots of the states they expand.
+     */
+    private final class Exploration {
+
+        final List<S> states = new ArrayList<>();
+        final Map<S, Integer> stateIds;
+        final List<T> triggers = new ArrayList<>();
+        final Map<T, Integer> triggerIds;
+        StateRepresentation<S, T>[] representations;
+        AtomicIntegerArray visited;
+        int[][] successors;
+        BitSet[] handled;
+        boolean[] dynamic;
+
+        Exploration() {
+            boolean identity = config.getStateSymbols().isIdentity();
+            stateIds = identity ? new IdentityHashMap<S, Integer>() : new HashMap<S, Integer>();
+            triggerIds = identity ? new IdentityHashMap<T, Integer>() : new HashMap<T, Integer>();
+        }
+
+        @SuppressWarnings("unchecked")
+        void index(S initialState) {
+            Collection<StateRepresentation<S, T>> configured = config.getRepresentations();
+            for (StateRepresentation<S, T> rep : configured) {
+                stateId(rep.getUnderlyingState());
+            }
+            for (T trigger : extraTriggers) {
+                triggerId(trigger);
+            }
+            for (StateRepresentation<S, T> rep : configured) {
+                for (Map.Entry<T, List<TriggerBehaviour<S, T>>> entry : rep.getTriggerBehaviours().entrySet()) {
+                    triggerId(entry.getKey());
+                    for (TriggerBehaviour<S, T> behaviour : entry.getValue()) {
+                        if (behaviour instanceof TransitioningTriggerBehaviour) {
+                            stateId(((TransitioningTriggerBehaviour<S, T>) behaviour).getDestination());
+                        }
+                    }
+                }
+                for (S region : rep.getRegions()) {
+                    stateId(region);
+                }
+            }
+            stateId(initialState);
+
+            int count = states.size();
+            representations = new StateRepresentation[count];
+            for (StateRepresentation<S, T> rep : configured) {
+                representations[stateIds.get(rep.getUnderlyingState())] = rep;
+            }
+            visited = new AtomicIntegerArray(count);
+            successors = new int[count][];
+            handled = new BitSet[count];
+            dynamic = new boolean[count];
+        }
+
+        private void stateId(S state) {
+            if (!stateIds.containsKey(state)) {
+                stateIds.put(state, states.size());
+                states.add(state);
+            }
+        }
+
+        private void triggerId(T trigger) {
+            if (!triggerIds.containsKey(trigger)) {
+                triggerIds.put(trigger, triggers.size());
+                triggers.add(trigger);
+            }
+        }
+
+        void explore(int initialId, ForkJoinPool pool) {
+            visited.set(initialId, 1);
+            int[] frontier = {initialId};
+            while (frontier.length > 0) {
+                // several ranges per worker, so that workers that finish early can steal
+                int threshold = Math.max(64, frontier.length / (pool.getParallelism() * 8));
+                frontier = pool.invoke(new LevelExpansion(frontier, 0, frontier.length, threshold)).toArray();
+            }
+        }
+
+        /**
+         * Expand a state that this thread was the first to reach, and collect the states it reaches first in turn
+         */
+        void expand(int id, IntList next) {
+            StateRepresentation<S, T> rep = representations[id];
+            if (rep == null) {
+                successors[id] = NO_SUCCESSORS;
+                handled[id] = new BitSet();
+                return;
+            }
+            S state = states.get(id);
+            IntList reached = new IntList();
+            BitSet handledTriggers = new BitSet();
+            BitSet resolved = new BitSet(); // triggers that cannot fall through to the superstate
+            for (StateRepresentation<S, T> level = rep; level != null; level = level.getSuperstate()) {
+                for (Map.Entry<T, List<TriggerBehaviour<S, T>>> entry : level.getTriggerBehaviours().entrySet()) {
+                    int triggerId = triggerIds.get(entry.getKey());
+                    if (resolved.get(triggerId)) {
+                        continue;
+                    }
+                    boolean taken = false;
+                    boolean allGuarded = true;
+                    for (TriggerBehaviour<S, T> behaviour : entry.getValue()) {
+                        allGuarded &= behaviour.isGuarded();
+                        if (behaviour.isGuarded() && guardValuation != null && !guardValuation.call(state, behaviour)) {
+                            continue;
+                        }
+                        taken = true;
+                        if (behaviour instanceof TransitioningTriggerBehaviour) {
+                            reached.add(stateIds.get(((TransitioningTriggerBehaviour<S, T>) behaviour).getDestination()));
+                        } else if (behaviour instanceof DynamicTriggerBehaviour) {
+                            dynamic[id] = true;
+                        }
+                    }
+                    if (taken) {
+                        handledTriggers.set(triggerId);
+                    }
+                    if (guardValuation == null ? !allGuarded : taken) {
+                        resolved.set(triggerId);
+                    }
+                }
+            }
+            for (S region : rep.getRegions()) {
+                reached.add(stateIds.get(region));
+            }
+            int[] distinct = reached.toSortedDistinctArray();
+            successors[id] = distinct;
+            handled[id] = handledTriggers;
+            for (int successor : distinct) {
+                if (visited.compareAndSet(successor, 0, 1)) {
+                    next.add(successor);
+                }
+            }
+        }
+
+        StateSpaceReport<S, T> report() {
+            boolean[] reachable = new boolean[states.size()];
+            for (int id = 0; id < reachable.length; id++) {
+                if (visited.get(id) == 1) {
+                    reachable[id] = true;
+                    StateRepresentation<S, T> rep = representations[id];
+                    for (StateRepresentation<S, T> sup = rep == null ? null : rep.getSuperstate(); sup != null; sup = sup.getSuperstate()) {
+                        reachable[stateIds.get(sup.getUnderlyingState())] = true;
+                    }
+                }
+            }
+
+            Set<S> reachableStates = new LinkedHashSet<>();
+            Set<S> unreachableStates = new LinkedHashSet<>();
+            Set<S> sinkStates = new LinkedHashSet<>();
+            Set<S> dynamicStates = new LinkedHashSet<>();
+            Map<S, Set<T>> unhandledTriggers = new LinkedHashMap<>();
+            BitSet everHandled = new BitSet();
+            for (int id = 0; id < reachable.length; id++) {
+                S state = states.get(id);
+                if (!reachable[id]) {
+                    if (representations[id] != null) {
+                        unreachableStates.add(state);
+                    }
+                    continue;
+                }
+                reachableStates.add(state);
+                if (visited.get(id) == 0) {
+                    continue; // only reached as the superstate of a reachable state
+                }
+                if (dynamic[id]) {
+                    dynamicStates.add(state);
+                } else if (leadsNowhere(id)) {
+                    sinkStates.add(state);
+                }
+                everHandled.or(handled[id]);
+                if (handled[id].cardinality() < triggers.size()) {
+                    Set<T> unhandled = new LinkedHashSet<>();
+                    for (int t = handled[id].nextClearBit(0); t < triggers.size(); t = handled[id].nextClearBit(t + 1)) {
+                        unhandled.add(triggers.get(t));
+                    }
+                    unhandledTriggers.put(state, unhandled);
+                }
+            }
+            Set<T> neverPermitted = new LinkedHashSet<>();
+            for (int t = everHandled.nextClearBit(0); t < triggers.size(); t = everHandled.nextClearBit(t + 1)) {
+                neverPermitted.add(triggers.get(t));
+            }
+            return new StateSpaceReport<>(reachableStates, unreachableStates, sinkStates, dynamicStates,
+                    unhandledTriggers, neverPermitted);
+        }
+
+        private boolean leadsNowhere(int id) {
+            for (int successor : successors[id]) {
+                if (successor != id) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private final class LevelExpansion extends RecursiveTask<IntList> {
+
+            private final int[] frontier;
+            private final int from;
+            private final int to;
+            private final int threshold;
+
+            LevelExpansion(int[] frontier, int from, int to, int threshold) {
+                this.frontier = frontier;
+                this.from = from;
+                this.to = to;
+                this.threshold = threshold;
+            }
+
+            @Override
+            protected IntList compute() {
+                if (to - from <= threshold) {
+                    IntList next = new IntList();
+                    for (int i = from; i < to; i++) {
+                        expand(frontier[i], next);
+                    }
+                    return next;
+                }
+                int mid = (from + to) >>> 1;
+                LevelExpansion left = new LevelExpansion(frontier, from, mid, threshold);
+                left.fork();
+                IntList right = new LevelExpansion(frontier, mid, to, threshold).compute();
+                IntList next = left.join();
+                next.addAll(right);
+                return next;
+            }
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        int[] toSortedDistinctArray() {
+            int[] sorted = toArray();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Findings of a {@link StateSpaceAnalyzer}
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class StateSpaceReport<S, T> {
+
+    private final Set<S> reachableStates;
+    private final Set<S> unreachableStates;
+    private final Set<S> sinkStates;
+    private final Set<S> statesWithDynamicTransitions;
+    private final Map<S, Set<T>> unhandledTriggers;
+    private final Set<T> neverPermittedTriggers;
+
+    StateSpaceReport(Set<S> reachableStates, Set<S> unreachableStates, Set<S> sinkStates,
+                     Set<S> statesWithDynamicTransitions, Map<S, Set<T>> unhandledTriggers,
+                     Set<T> neverPermittedTriggers) {
+        this.reachableStates = Collections.unmodifiableSet(reachableStates);
+        this.unreachableStates = Collections.unmodifiableSet(unreachableStates);
+        this.sinkStates = Collections.unmodifiableSet(sinkStates);
+        this.statesWithDynamicTransitions = Collections.unmodifiableSet(statesWithDynamicTransitions);
+        this.unhandledTriggers = Collections.unmodifiableMap(unhandledTriggers);
+        this.neverPermittedTriggers = Collections.unmodifiableSet(neverPermittedTriggers);
+    }
+
+    /**
+     * @return The states reachable from the initial state, including the superstates of reachable states
+     */
+    public Set<S> getReachableStates() {
+        return reachableStates;
+    }
+
+    /**
+     * @return The configured states that are not reachable from the initial state
+     */
+    public Set<S> getUnreachableStates() {
+        return unreachableStates;
+    }
+
+    /**
+     * @return The reachable states that have no transition to another state
+     */
+    public Set<S> getSinkStates() {
+        return sinkStates;
+    }
+
+    /**
+     * @return The reachable states with dynamic transitions, whose destinations were not explored
+     */
+    public Set<S> getStatesWithDynamicTransitions() {
+        return statesWithDynamicTransitions;
+    }
+
+    /**
+     * The triggers that no behaviour handles in each reachable state, including ignoring or deferring them; firing
+     * them there is an unhandled trigger
+     *
+     * @return The unhandled triggers by state, for states with at least one
+     */
+    public Map<S, Set<T>> getUnhandledTriggers() {
+        return unhandledTriggers;
+    }
+
+    /**
+     * @return The triggers that are not handled in any reachable state
+     */
+    public Set<T> getNeverPermittedTriggers() {
+        return neverPermittedTriggers;
+    }
+}
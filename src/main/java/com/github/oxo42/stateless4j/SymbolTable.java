@@ -0,0 +1,152 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids, starting at 0 and in order of first appearance, to states or triggers of any type, so that
+ * they can index arrays instead of being looked up in hash maps.
+ * <p>
+ * Symbols are compared with equals() or, for identity tables, with ==, which avoids calling hashCode() and equals()
+ * of types such as String when every use refers to the same instance, for example constants. Lookups never change
+ * the table, so a table that is no longer interned into can be read by any number of threads.
+ *
+ * @param <E> The type of the symbols
+ */
+public class SymbolTable<E> {
+
+    private final boolean identity;
+    private Object[] keys; // open addressing with linear probing, null marks a free slot
+    private int[] keyIds;
+    private Object[] symbols;
+    private int size;
+
+    /**
+     * Construct a table that compares symbols with equals()
+     */
+    public SymbolTable() {
+        this(false);
+    }
+
+    /**
+     * @param identity True to compare symbols with == instead of equals()
+     */
+    public SymbolTable(boolean identity) {
+        this.identity = identity;
+        keys = new Object[16];
+        keyIds = new int[16];
+        symbols = new Object[8];
+    }
+
+    private SymbolTable(SymbolTable<E> source) {
+        identity = source.identity;
+        keys = source.keys.clone();
+        keyIds = source.keyIds.clone();
+        symbols = Arrays.copyOf(source.symbols, source.size);
+        size = source.size;
+    }
+
+    /**
+     * Gets whether symbols are compared with == instead of equals()
+     *
+     * @return true if symbols are compared with ==
+     */
+    public boolean isIdentity() {
+        return identity;
+    }
+
+    /**
+     * Returns the id of the symbol, assigning the next id if the symbol has none yet
+     *
+     * @param symbol The symbol
+     * @return The id of the symbol
+     */
+    public int intern(E symbol) {
+        assert symbol != null : "symbol is null";
+        int slot = slotOf(symbol);
+        if (keys[slot] != null) {
+            return keyIds[slot];
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        int id = size++;
+        symbols[id] = symbol;
+        keys[slot] = symbol;
+        keyIds[slot] = id;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the symbol
+     *
+     * @param symbol The symbol
+     * @return The id of the symbol, or -1 if it has none
+     */
+    public int indexOf(Object symbol) {
+        if (symbol == null) {
+            return -1;
+        }
+        int slot = slotOf(symbol);
+        return keys[slot] == null ? -1 : keyIds[slot];
+    }
+
+    /**
+     * Returns the symbol with the id
+     *
+     * @param id The id
+     * @return The symbol
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalStateException("No symbol has id " + id + ".");
+        }
+        return (E) symbols[id];
+    }
+
+    /**
+     * The number of symbols, which is also the next id
+     *
+     * @return The number of symbols
+     */
+    public int size() {
+        return size;
+    }
+
+    SymbolTable<E> copy() {
+        return new SymbolTable<>(this);
+    }
+
+    /**
+     * @return The slot holding the symbol, or the free slot where it belongs
+     */
+    private int slotOf(Object symbol) {
+        int mask = keys.length - 1;
+        int h = identity ? System.identityHashCode(symbol) : symbol.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        for (;;) {
+            Object key = keys[slot];
+            if (key == null || key == symbol || (!identity && key.equals(symbol))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldIds = keyIds;
+        keys = new Object[oldKeys.length * 2];
+        keyIds = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                keyIds[slot] = oldIds[i];
+            }
+        }
+    }
+}
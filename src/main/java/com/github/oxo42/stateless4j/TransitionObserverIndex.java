@@ -0,0 +1,133 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.transitions.Transition;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The transition observers of a configuration, indexed by source state, trigger and destination state, in that
+ * order. Built once from the registrations, after which it is only read, so it can be shared by any number of threads.
+ * <p>
+ * At each level, an observer is filed under the id of its key or, if it has none, under the wildcard of the level.
+ * A transition therefore looks up its three keys once each and reaches the at most eight lists of observers that
+ * match it, without visiting any other observer.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+final class TransitionObserverIndex<S, T> {
+
+    private static final Object[] NONE = new Object[0];
+
+    private final SymbolTable<S> states;
+    private final SymbolTable<T> triggers;
+    private final Node root = new Node();
+
+    TransitionObserverIndex(List<Registration<S, T>> registrations, boolean identitySymbols) {
+        states = new SymbolTable<>(identitySymbols);
+        triggers = new SymbolTable<>(identitySymbols);
+        for (Registration<S, T> registration : registrations) {
+            Node bySource = root.child(registration.source == null ? -1 : states.intern(registration.source));
+            Node byTrigger = bySource.child(registration.trigger == null ? -1 : triggers.intern(registration.trigger));
+            byTrigger.add(registration.destination == null ? -1 : states.intern(registration.destination), registration.observer);
+        }
+    }
+
+    /**
+     * Call the observers matching the transition: those registered with its source before those registered for
+     * any source, then likewise for the trigger and the destination, and in registration order otherwise
+     *
+     * @param transition The transition that took place
+     */
+    void notify(Transition<S, T> transition) {
+        int trigger = triggers.indexOf(transition.getTrigger());
+        int destination = states.indexOf(transition.getDestination());
+        notify(root.at(states.indexOf(transition.getSource())), trigger, destination, transition);
+        notify(root.any, trigger, destination, transition);
+    }
+
+    private static <S, T> void notify(Object bySource, int trigger, int destination, Transition<S, T> transition) {
+        if (bySource != null) {
+            Node node = (Node) bySource;
+            notifyByDestination(node.at(trigger), destination, transition);
+            notifyByDestination(node.any, destination, transition);
+        }
+    }
+
+    private static <S, T> void notifyByDestination(Object byTrigger, int destination, Transition<S, T> transition) {
+        if (byTrigger != null) {
+            Node node = (Node) byTrigger;
+            call(node.at(destination), transition);
+            call(node.any, transition);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S, T> void call(Object observers, Transition<S, T> transition) {
+        if (observers != null) {
+            for (Object observer : (Object[]) observers) {
+                ((Action1<Transition<S, T>>) observer).doIt(transition);
+            }
+        }
+    }
+
+    /**
+     * An observer and the keys it was registered with, null for any
+     */
+    static final class Registration<S, T> {
+
+        final S source;
+        final T trigger;
+        final S destination;
+        final Action1<Transition<S, T>> observer;
+
+        Registration(S source, T trigger, S destination, Action1<Transition<S, T>> observer) {
+            this.source = source;
+            this.trigger = trigger;
+            this.destination = destination;
+            this.observer = observer;
+        }
+    }
+
+    /**
+     * The entries of one level, by id and for the wildcard: nodes of the next level, or arrays of observers
+     */
+    private static final class Node {
+
+        private Object any;
+        private Object[] byId = NONE;
+
+        Object at(int id) {
+            return id >= 0 && id < byId.length ? byId[id] : null;
+        }
+
+        Node child(int id) {
+            Object child = id < 0 ? any : at(id);
+            if (child == null) {
+                child = new Node();
+                set(id, child);
+            }
+            return (Node) child;
+        }
+
+        void add(int id, Object observer) {
+            Object[] observers = (Object[]) (id < 0 ? any : at(id));
+            observers = observers == null ? new Object[1] : Arrays.copyOf(observers, observers.length + 1);
+            observers[observers.length - 1] = observer;
+            set(id, observers);
+        }
+
+        private void set(int id, Object value) {
+            if (id < 0) {
+                any = value;
+                return;
+            }
+            if (id >= byId.length) {
+                byId = Arrays.copyOf(byId, id + 1);
+            }
+            byId[id] = value;
+        }
+    }
+}
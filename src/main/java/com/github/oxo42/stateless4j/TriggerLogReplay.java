@@ -0,0 +1,120 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies a log of triggers to many independent state machines in parallel, and summarises the outcome.
+ * <p>
+ * The keys of the machines are taken in the iteration order of their map, so a sorted map is split into key ranges.
+ * Ranges are split in halves by a fork/join pool until they are small enough to replay on one thread; each machine is
+ * only ever fired by one thread. The machines must not share mutable state other than an immutable configuration.
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class TriggerLogReplay<K, S, T> {
+
+    private final Map<K, ? extends StateMachine<S, T>> machines;
+    private final Map<K, ? extends Iterable<T>> triggerLog;
+    private boolean entryAndExitActionsEnabled = true;
+
+    /**
+     * @param machines   The machines to replay the triggers on, by key
+     * @param triggerLog The triggers to fire on each machine, in order, by key; machines without triggers are only
+     *                   counted in the summary
+     */
+    public TriggerLogReplay(Map<K, ? extends StateMachine<S, T>> machines, Map<K, ? extends Iterable<T>> triggerLog) {
+        assert machines != null : "machines is null";
+        assert triggerLog != null : "triggerLog is null";
+        this.machines = machines;
+        this.triggerLog = triggerLog;
+    }
+
+    /**
+     * Executes entry and exit actions while replaying. This is the default.
+     */
+    public void enableEntryAndExitActions() {
+        entryAndExitActionsEnabled = true;
+    }
+
+    /**
+     * Skips entry and exit actions while replaying, so that side effects are not repeated; each machine's own
+     * setting is restored afterwards
+     */
+    public void disableEntryAndExitActions() {
+        entryAndExitActionsEnabled = false;
+    }
+
+    /**
+     * Replay the log
+     *
+     * @param pool The pool to replay on
+     * @return The final state of every machine, and the number of triggers fired and transitions taken
+     */
+    @SuppressWarnings("unchecked")
+    public ReplaySummary<S> replay(ForkJoinPool pool) {
+        assert pool != null : "pool is null";
+        K[] keys = (K[]) machines.keySet().toArray();
+        // several ranges per worker, so that workers that finish early can steal
+        int threshold = Math.max(1, keys.length / (pool.getParallelism() * 8));
+        return pool.invoke(new RangeReplay(keys, 0, keys.length, threshold));
+    }
+
+    private ReplaySummary<S> replay(K[] keys, int from, int to) {
+        ReplaySummary<S> summary = new ReplaySummary<>();
+        for (int i = from; i < to; i++) {
+            StateMachine<S, T> machine = machines.get(keys[i]);
+            Iterable<T> triggers = triggerLog.get(keys[i]);
+            long fired = 0;
+            long transitionsBefore = machine.getTransitionCount();
+            if (triggers != null) {
+                boolean machineActionsEnabled = machine.isEntryAndExitActionsEnabled();
+                if (!entryAndExitActionsEnabled) {
+                    machine.disableEntryAndExitActions();
+                }
+                try {
+                    for (T trigger : triggers) {
+                        machine.fire(trigger);
+                        fired++;
+                    }
+                } finally {
+                    if (machineActionsEnabled && !entryAndExitActionsEnabled) {
+                        machine.enableEntryAndExitActions();
+                    }
+                }
+            }
+            summary.add(machine.getState(), fired, machine.getTransitionCount() - transitionsBefore);
+        }
+        return summary;
+    }
+
+    private final class RangeReplay extends RecursiveTask<ReplaySummary<S>> {
+
+        private final K[] keys;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeReplay(K[] keys, int from, int to, int threshold) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected ReplaySummary<S> compute() {
+            if (to - from <= threshold) {
+                return replay(keys, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeReplay upper = new RangeReplay(keys, middle, to, threshold);
+            upper.fork();
+            ReplaySummary<S> lower = new RangeReplay(keys, from, middle, threshold).compute();
+            return lower.merge(upper.join());
+        }
+    }
+}
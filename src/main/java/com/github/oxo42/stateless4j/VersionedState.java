@@ -0,0 +1,30 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * A state together with the version under which it is stored
+ *
+ * @param <S> The type used to represent the states
+ */
+public final class VersionedState<S> {
+
+    private final S state;
+    private final long version;
+
+    public VersionedState(S state, long version) {
+        this.state = state;
+        this.version = version;
+    }
+
+    public S getState() {
+        return state;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return state + "@" + version;
+    }
+}
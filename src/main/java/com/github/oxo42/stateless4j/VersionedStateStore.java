@@ -0,0 +1,27 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * External storage of the state of one state machine that detects concurrent writers through versions, for example
+ * a database row with a version column
+ *
+ * @param <S> The type used to represent the states
+ */
+public interface VersionedStateStore<S> {
+
+    /**
+     * Read the stored state
+     *
+     * @return The stored state and its version
+     */
+    VersionedState<S> read();
+
+    /**
+     * Store the state if the stored version is still the expected one, typically as
+     * UPDATE ... SET state = ?, version = version + 1 WHERE id = ? AND version = ?
+     *
+     * @param expectedVersion The version the state was read with
+     * @param state           The state to store
+     * @return The stored state and its new version, or null if the stored version has changed
+     */
+    VersionedState<S> compareAndSet(long expectedVersion, S state);
+}
@@ -2,6 +2,8 @@ package com.github.oxo42.stateless4j.conversion;
 
 public final class ParameterConversion {
 
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
     private ParameterConversion() {
     }
 
@@ -13,14 +15,7 @@ public final class ParameterConversion {
                     String.format("An argument of type %s is required in position %s.", argType, index));
         }
 
-        Object arg = args[index];
-
-        if (arg != null && !argType.isAssignableFrom(arg.getClass())) {
-            throw new IllegalStateException(
-                    String.format("The argument in position %s is of type %s but must be of type %s.", index, arg.getClass(), argType));
-        }
-
-        return arg;
+        return check(args[index], argType, index);
     }
 
     public static void validate(Object[] args, Class<?>[] expected) {
@@ -33,4 +28,68 @@ public final class ParameterConversion {
             unpack(args, expected[i], i);
         }
     }
+
+    /**
+     * Like {@link #validate(Object[], Class[])}, for up to three arguments passed separately
+     *
+     * @param count    The number of arguments
+     * @param arg0     The first argument, if any
+     * @param arg1     The second argument, if any
+     * @param arg2     The third argument, if any
+     * @param expected The expected argument types
+     */
+    public static void validate(int count, Object arg0, Object arg1, Object arg2, Class<?>[] expected) {
+        if (count > expected.length) {
+            throw new IllegalStateException(
+                    String.format("Too many parameters have been supplied. Expecting %s but got %s.", expected.length, count));
+        }
+
+        for (int i = 0; i < expected.length; ++i) {
+            if (count <= i) {
+                throw new IllegalStateException(
+                        String.format("An argument of type %s is required in position %s.", expected[i], i));
+            }
+            check(i == 0 ? arg0 : i == 1 ? arg1 : arg2, expected[i], i);
+        }
+    }
+
+    /**
+     * Put up to three arguments passed separately into an array, for code that takes them as one
+     *
+     * @param count The number of arguments
+     * @param arg0  The first argument, if any
+     * @param arg1  The second argument, if any
+     * @param arg2  The third argument, if any
+     * @return An array of the first count arguments
+     */
+    public static Object[] pack(int count, Object arg0, Object arg1, Object arg2) {
+        switch (count) {
+            case 0:
+                return NO_ARGUMENTS;
+            case 1:
+                return new Object[]{arg0};
+            case 2:
+                return new Object[]{arg0, arg1};
+            case 3:
+                return new Object[]{arg0, arg1, arg2};
+            default:
+                throw new IllegalStateException("At most three arguments can be passed separately: " + count);
+        }
+    }
+
+    /**
+     * @return The argument at the index, or null if there are fewer arguments
+     */
+    public static Object argumentAt(Object[] args, int index) {
+        return index < args.length ? args[index] : null;
+    }
+
+    private static Object check(Object arg, Class<?> argType, int index) {
+        if (arg != null && !argType.isAssignableFrom(arg.getClass())) {
+            throw new IllegalStateException(
+                    String.format("The argument in position %s is of type %s but must be of type %s.", index, arg.getClass(), argType));
+        }
+
+        return arg;
+    }
 }
@@ -0,0 +1,56 @@
+package com.github.oxo42.stateless4j.persistence;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Appends each batch to a local file, one machine per line as the key and the state separated by a tab, using their
+ * toString(). The latest line of a key holds its state; compacting the file is up to the reader.
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ */
+public class AppendOnlyFileSink<K, S> implements StateSink<K, S>, Closeable {
+
+    private final FileOutputStream out;
+    private final Writer writer;
+    private final boolean sync;
+
+    /**
+     * @param file The file to append to, created if it does not exist
+     * @param sync True to force each batch to the storage device before it is reported written, false to leave it
+     *             to the operating system
+     * @throws IOException if the file cannot be opened
+     */
+    public AppendOnlyFileSink(File file, boolean sync) throws IOException {
+        this.out = new FileOutputStream(file, true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.sync = sync;
+    }
+
+    @Override
+    public synchronized void write(Map<K, S> states) throws IOException {
+        for (Map.Entry<K, S> entry : states.entrySet()) {
+            writer.write(String.valueOf(entry.getKey()));
+            writer.write('\t');
+            writer.write(String.valueOf(entry.getValue()));
+            writer.write('\n');
+        }
+        writer.flush();
+        if (sync) {
+            out.getFD().sync();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.oxo42.stateless4j.persistence;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func;
+
+/**
+ * The state of one machine in a {@link WriteBehindStateStore}, to pass as both the state accessor and the state
+ * mutator of a state machine with external state storage. Reads are served from memory; writes are queued for the
+ * store's next flush.
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ */
+public final class StateBinding<K, S> implements Func<S>, Action1<S> {
+
+    private final WriteBehindStateStore<K, S> store;
+    private final K machineId;
+    private volatile S state;
+
+    StateBinding(WriteBehindStateStore<K, S> store, K machineId, S state) {
+        this.store = store;
+        this.machineId = machineId;
+        this.state = state;
+    }
+
+    public K getMachineId() {
+        return machineId;
+    }
+
+    @Override
+    public S call() {
+        return state;
+    }
+
+    @Override
+    public void doIt(S state) {
+        this.state = state;
+        store.write(machineId, state);
+    }
+}
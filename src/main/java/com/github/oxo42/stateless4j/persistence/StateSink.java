@@ -0,0 +1,22 @@
+package com.github.oxo42.stateless4j.persistence;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Durable storage that a {@link WriteBehindStateStore} flushes machine states to, for example a JDBC batch update or
+ * an {@link AppendOnlyFileSink}
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ */
+public interface StateSink<K, S> {
+
+    /**
+     * Store the states, which are durable once this returns. Batches are written one at a time.
+     *
+     * @param states The latest state of each machine written since the previous batch
+     * @throws IOException if the batch was not stored; it is retried with the next flush
+     */
+    void write(Map<K, S> states) throws IOException;
+}
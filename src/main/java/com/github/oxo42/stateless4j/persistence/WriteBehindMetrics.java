@@ -0,0 +1,99 @@
+package com.github.oxo42.stateless4j.persistence;
+
+/**
+ * A snapshot of the counters of a {@link WriteBehindStateStore}
+ */
+public final class WriteBehindMetrics {
+
+    private final int pending;
+    private final long writes;
+    private final long coalescedWrites;
+    private final long flushes;
+    private final long flushedStates;
+    private final long failedFlushes;
+    private final long lastFlushNanos;
+    private final long maxFlushNanos;
+    private final long totalFlushNanos;
+
+    WriteBehindMetrics(int pending, long writes, long coalescedWrites, long flushes, long flushedStates,
+                       long failedFlushes, long lastFlushNanos, long maxFlushNanos, long totalFlushNanos) {
+        this.pending = pending;
+        this.writes = writes;
+        this.coalescedWrites = coalescedWrites;
+        this.flushes = flushes;
+        this.flushedStates = flushedStates;
+        this.failedFlushes = failedFlushes;
+        this.lastFlushNanos = lastFlushNanos;
+        this.maxFlushNanos = maxFlushNanos;
+        this.totalFlushNanos = totalFlushNanos;
+    }
+
+    /**
+     * @return The number of machines whose latest state has not been flushed yet, the depth of the queue
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return The number of state writes by state machines
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return The number of writes that replaced a state still waiting to be flushed
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites;
+    }
+
+    /**
+     * @return The number of successful flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return The number of states written to the sink
+     */
+    public long getFlushedStates() {
+        return flushedStates;
+    }
+
+    /**
+     * @return The number of flushes that the sink failed
+     */
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+
+    /**
+     * @return The duration of the latest successful flush, in nanoseconds
+     */
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    /**
+     * @return The duration of the slowest successful flush, in nanoseconds
+     */
+    public long getMaxFlushNanos() {
+        return maxFlushNanos;
+    }
+
+    /**
+     * @return The total duration of the successful flushes, in nanoseconds
+     */
+    public long getTotalFlushNanos() {
+        return totalFlushNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriteBehindMetrics {{ Pending = %d, Writes = %d, Coalesced = %d, Flushes = %d, FlushedStates = %d, FailedFlushes = %d, MaxFlushNanos = %d }}",
+                pending, writes, coalescedWrites, flushes, flushedStates, failedFlushes, maxFlushNanos);
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.oxo42.stateless4j.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind storage for the states of many state machines with external state storage.
+ * <p>
+ * Each machine is bound with {@link #bind(Object, Object)} and fires as usual; its state writes only update memory
+ * and mark the machine dirty, so repeated writes before a flush are coalesced into one. Dirty states are flushed to
+ * the sink in batches on the scheduler, once at least a batch is pending or the maximum delay has passed, so a
+ * state written is durable within roughly the maximum delay plus the time a flush takes. A writer that finds four
+ * batches pending flushes on its own thread, which bounds memory when the sink falls behind. A failed batch stays
+ * pending and is retried by the next flush.
+ *
+ * @param <K> The type of the keys identifying the machines
+ * @param <S> The type used to represent the states
+ */
+public class WriteBehindStateStore<K, S> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindStateStore.class);
+
+    private final StateSink<K, S> sink;
+    private final int batchSize;
+    private final int maxPending;
+    private final ConcurrentHashMap<K, S> dirty = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> periodicFlush;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushRequested.set(false);
+            flushQuietly();
+        }
+    };
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedStates = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos; // written while holding the flush lock
+    private volatile boolean closed;
+
+    /**
+     * @param sink      The storage to flush states to
+     * @param batchSize The maximum number of states per batch, and the number pending that triggers a flush
+     * @param maxDelay  The maximum time between flushes
+     * @param unit      The unit of maxDelay
+     * @param scheduler The executor that flushes, which is not shut down when the store is closed
+     */
+    public WriteBehindStateStore(StateSink<K, S> sink, int batchSize, long maxDelay, TimeUnit unit, ScheduledExecutorService scheduler) {
+        assert sink != null : "sink is null";
+        assert unit != null : "unit is null";
+        assert scheduler != null : "scheduler is null";
+        if (batchSize <= 0) {
+            throw new IllegalStateException("The batch size must be positive: " + batchSize);
+        }
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.maxPending = batchSize * 4;
+        this.scheduler = scheduler;
+        this.periodicFlush = scheduler.scheduleWithFixedDelay(flushTask, maxDelay, maxDelay, unit);
+    }
+
+    /**
+     * Bind a machine to the store. The returned binding is both the state accessor and the state mutator to
+     * construct the state machine with.
+     *
+     * @param machineId The key of the machine
+     * @param state     The current state of the machine, as loaded from the sink's storage
+     * @return The binding of the machine
+     */
+    public StateBinding<K, S> bind(K machineId, S state) {
+        assert machineId != null : "machineId is null";
+        return new StateBinding<>(this, machineId, state);
+    }
+
+    void write(K machineId, S state) {
+        if (closed) {
+            throw new IllegalStateException("The write-behind store is closed; the state of machine '" + machineId + "' cannot be written.");
+        }
+        writes.incrementAndGet();
+        if (dirty.put(machineId, state) != null) {
+            coalescedWrites.incrementAndGet();
+        }
+        int pending = dirty.size();
+        if (pending >= maxPending) {
+            flushQuietly();
+        } else if (pending >= batchSize && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(flushTask);
+        }
+    }
+
+    /**
+     * Write the pending states to the sink now, in batches
+     *
+     * @throws IOException if the sink failed a batch, which stays pending
+     */
+    public void flush() throws IOException {
+        flushLock.lock();
+        try {
+            // writers may keep adding states, so only the batches pending now are flushed
+            for (int rounds = dirty.size() / batchSize + 1; rounds > 0; rounds--) {
+                Map<K, S> batch = new HashMap<>(Math.min(batchSize, dirty.size()) * 4 / 3 + 1);
+                Iterator<Map.Entry<K, S>> pending = dirty.entrySet().iterator();
+                while (batch.size() < batchSize && pending.hasNext()) {
+                    Map.Entry<K, S> entry = pending.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    sink.write(Collections.unmodifiableMap(batch));
+                } catch (IOException | RuntimeException e) {
+                    failedFlushes.incrementAndGet();
+                    throw e;
+                }
+                long elapsed = System.nanoTime() - start;
+
+                for (Map.Entry<K, S> entry : batch.entrySet()) {
+                    // a state written meanwhile stays pending
+                    dirty.remove(entry.getKey(), entry.getValue());
+                }
+                flushes.incrementAndGet();
+                flushedStates.addAndGet(batch.size());
+                totalFlushNanos.addAndGet(elapsed);
+                lastFlushNanos = elapsed;
+                if (elapsed > maxFlushNanos) {
+                    maxFlushNanos = elapsed;
+                }
+                if (batch.size() < batchSize) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Flushing " + dirty.size() + " pending states failed; they are retried with the next flush", e);
+        }
+    }
+
+    /**
+     * @return The number of machines whose latest state has not been flushed yet
+     */
+    public int getPending() {
+        return dirty.size();
+    }
+
+    /**
+     * @return A snapshot of the counters of the store
+     */
+    public WriteBehindMetrics getMetrics() {
+        return new WriteBehindMetrics(dirty.size(), writes.get(), coalescedWrites.get(), flushes.get(),
+                flushedStates.get(), failedFlushes.get(), lastFlushNanos, maxFlushNanos, totalFlushNanos.get());
+    }
+
+    /**
+     * Stop the periodic flush, reject further writes and flush the pending states
+     *
+     * @throws IOException if the sink failed a batch
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        periodicFlush.cancel(false);
+        flush();
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.oxo42.stateless4j.reactive;
+
+/**
+ * Interfaces for flow-controlled publish and subscribe, with the same methods and contracts as
+ * java.util.concurrent.Flow and the Reactive Streams specification, for use on runtimes that predate them.
+ * Adapting to the JDK interfaces only takes delegating each method.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A producer of items received by subscribers, each of which receives items in order and only as many as it
+     * has requested
+     *
+     * @param <T> The type of the published items
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Adds the subscriber, which is called back with {@link Subscriber#onSubscribe(Subscription)} or, if it
+         * cannot be added, with {@link Subscriber#onError(Throwable)}
+         *
+         * @param subscriber The subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods are called one at a time, in order, for each subscription.
+     *
+     * @param <T> The type of the received items
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method for the subscription
+         *
+         * @param subscription The subscription, through which items are requested
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item, never more often than items were requested
+         *
+         * @param item The item
+         */
+        void onNext(T item);
+
+        /**
+         * Called when the publisher or subscription failed; no other method is called afterwards
+         *
+         * @param throwable The failure
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no more items will be published; no other method is called afterwards
+         */
+        void onComplete();
+    }
+
+    /**
+     * Links a publisher and a subscriber
+     */
+    public interface Subscription {
+
+        /**
+         * Adds n items to the demand of the subscriber. A request for zero or fewer items fails the subscription.
+         *
+         * @param n The number of items to add to the demand
+         */
+        void request(long n);
+
+        /**
+         * Stops the publisher from sending further items, possibly not immediately
+         */
+        void cancel();
+    }
+
+    /**
+     * Both a subscriber and a publisher, transforming the items it receives
+     *
+     * @param <T> The type of the received items
+     * @param <R> The type of the published items
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free FIFO for a single producer thread and a single consumer thread at a time.
+ * <p>
+ * A slot is free while it holds null, so each side only reads its own index and the slots: the producer publishes
+ * an element with an ordered store into its slot, and the consumer releases the slot the same way. A consumer may be
+ * replaced by another thread as long as the hand-over happens-before the next poll.
+ *
+ * @param <E> The type of the elements
+ */
+final class SpscArrayQueue<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private long producerIndex; // written by the producer only
+    private long consumerIndex; // written by the consumer only
+
+    /**
+     * @param capacity The minimum capacity, rounded up to a power of two
+     */
+    SpscArrayQueue(int capacity) {
+        assert capacity > 0 : "capacity is not positive";
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Called by the producer
+     *
+     * @return False if the queue is full
+     */
+    boolean offer(E element) {
+        assert element != null : "element is null";
+        int index = (int) producerIndex & mask;
+        if (slots.get(index) != null) {
+            return false;
+        }
+        slots.lazySet(index, element);
+        producerIndex++;
+        return true;
+    }
+
+    /**
+     * Called by the consumer
+     *
+     * @return The head of the queue, or null if it is empty
+     */
+    E poll() {
+        int index = (int) consumerIndex & mask;
+        E element = slots.get(index);
+        if (element != null) {
+            slots.lazySet(index, null);
+            consumerIndex++;
+        }
+        return element;
+    }
+
+    /**
+     * Called by the consumer
+     */
+    boolean isEmpty() {
+        return slots.get((int) consumerIndex & mask) == null;
+    }
+
+    /**
+     * Called by the consumer, when the producer is done
+     */
+    void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+}
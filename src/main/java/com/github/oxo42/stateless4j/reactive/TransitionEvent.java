@@ -0,0 +1,112 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
+
+/**
+ * A slot of a {@link TransitionRingBuffer}, holding one published transition. Slots are allocated with the ring and
+ * reused, so an event is only valid while a reader's handler is called with it; copy what must be kept.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public final class TransitionEvent<S, T> {
+
+    volatile long sequence; // the sequence of the transition held, written last by the publisher
+
+    private StateMachine<S, T> machine;
+    private S source;
+    private T trigger;
+    private S destination;
+    private long timestampNanos;
+    private int argumentCount;
+    private Object arg0;
+    private Object arg1;
+    private Object arg2;
+    private Object[] args; // null if the arguments were passed separately
+
+    TransitionEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void set(StateMachine<S, T> machine, S source, T trigger, S destination, long timestampNanos,
+             int argumentCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        this.machine = machine;
+        this.source = source;
+        this.trigger = trigger;
+        this.destination = destination;
+        this.timestampNanos = timestampNanos;
+        this.argumentCount = argumentCount;
+        this.arg0 = arg0;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.args = args;
+    }
+
+    /**
+     * @return The sequence number of the transition in the ring, starting at 0
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The state machine that took the transition; for a transition of an orthogonal region, the machine the
+     * ring was attached to
+     */
+    public StateMachine<S, T> getMachine() {
+        return machine;
+    }
+
+    public S getSource() {
+        return source;
+    }
+
+    public T getTrigger() {
+        return trigger;
+    }
+
+    public S getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return The time of the transition, from the clock of the ring
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return The number of arguments the trigger was fired with
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * @param index The position of the argument
+     * @return The argument the trigger was fired with at the position
+     */
+    public Object getArgument(int index) {
+        if (index < 0 || index >= argumentCount) {
+            throw new IllegalStateException("There is no argument in position " + index + " of " + argumentCount + ".");
+        }
+        if (args != null) {
+            return args[index];
+        }
+        return index == 0 ? arg0 : index == 1 ? arg1 : arg2;
+    }
+
+    /**
+     * @return The arguments the trigger was fired with, in an array that may be the one passed to fire
+     */
+    public Object[] getArguments() {
+        return args != null ? args : ParameterConversion.pack(argumentCount, arg0, arg1, arg2);
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionEvent{" + sequence + ": " + source + " -" + trigger + "-> " + destination + "}";
+    }
+}
@@ -0,0 +1,294 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fires the triggers it receives on a state machine and publishes the resulting transitions to a single subscriber.
+ * <p>
+ * Triggers are requested from upstream in batches and buffered in a bounded lock-free queue; a trigger is only fired
+ * while the subscriber has outstanding demand, so a slow subscriber slows down upstream instead of filling a buffer.
+ * The state machine is fired by whichever thread drains the queue, one thread at a time, and must not be fired by
+ * other means while subscribed. Only the transitions caused by the triggers it fires are published; the processor
+ * listens to the state machine from its first trigger until the subscription terminates, and buffers the transitions
+ * of one trigger at a time. A trigger that fails to fire, for example because it is not handled in the current
+ * state, cancels upstream and is signalled to the subscriber with onError.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class TransitionProcessor<S, T> implements Flow.Processor<TriggerEvent<T>, Transition<S, T>> {
+
+    private final StateMachine<S, T> stateMachine;
+    private final int batchSize;
+    private final SpscArrayQueue<TriggerEvent<T>> triggers;
+    private final ArrayDeque<Transition<S, T>> transitions = new ArrayDeque<>(); // accessed while draining only
+    private final Action1<Transition<S, T>> listener = new Action1<Transition<S, T>>() {
+        @Override
+        public void doIt(Transition<S, T> transition) {
+            if (firing) {
+                transitions.add(transition);
+            }
+        }
+    };
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicReference<Flow.Subscriber<? super Transition<S, T>>> downstream = new AtomicReference<>();
+    private volatile Flow.Subscription upstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile Throwable invalidRequest;
+    private volatile boolean cancelled;
+    private int consumed; // accessed while draining only
+    private boolean listening; // accessed while draining only
+    private boolean firing; // accessed while draining only
+
+    /**
+     * @param stateMachine The state machine to fire the triggers on
+     * @param batchSize    The number of triggers requested from upstream at a time; twice as many are buffered
+     */
+    public TransitionProcessor(StateMachine<S, T> stateMachine, int batchSize) {
+        assert stateMachine != null : "stateMachine is null";
+        if (batchSize <= 0) {
+            throw new IllegalStateException("The batch size must be positive: " + batchSize);
+        }
+        this.stateMachine = stateMachine;
+        this.batchSize = batchSize;
+        this.triggers = new SpscArrayQueue<>(batchSize * 2);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Transition<S, T>> subscriber) {
+        assert subscriber != null : "subscriber is null";
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A transition processor only supports a single subscriber."));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    invalidRequest = new IllegalArgumentException("Requested " + n + " transitions; requests must be positive.");
+                } else {
+                    addRequested(n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                drain();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        if (cancelled) {
+            subscription.cancel();
+        } else {
+            subscription.request(triggers.capacity());
+        }
+    }
+
+    @Override
+    public void onNext(TriggerEvent<T> event) {
+        if (done) {
+            return;
+        }
+        if (!triggers.offer(event)) {
+            cancelUpstream();
+            onError(new IllegalStateException("Upstream sent more triggers than were requested."));
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    private void addRequested(long n) {
+        for (;;) {
+            long current = requested.get();
+            long updated = current + n;
+            if (updated < 0) {
+                updated = Long.MAX_VALUE;
+            }
+            if (requested.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Emit buffered transitions and fire buffered triggers while there is demand. Only the thread that increments
+     * the work counter from zero drains, and it keeps draining until no other thread asked for work meanwhile.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            Flow.Subscriber<? super Transition<S, T>> subscriber = downstream.get();
+            if (subscriber != null && !drain(subscriber)) {
+                // terminated: the counter is left non-zero so that nothing is drained again
+                return;
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return False if the subscription has terminated
+     */
+    private boolean drain(Flow.Subscriber<? super Transition<S, T>> subscriber) {
+        long demand = requested.get();
+        long emitted = 0;
+        for (;;) {
+            if (cancelled) {
+                triggers.clear();
+                transitions.clear();
+                stopListening();
+                return false;
+            }
+            Throwable invalid = invalidRequest;
+            if (invalid != null) {
+                terminate(subscriber, invalid);
+                return false;
+            }
+            if (!transitions.isEmpty()) {
+                if (emitted == demand) {
+                    break;
+                }
+                subscriber.onNext(transitions.poll());
+                emitted++;
+                continue;
+            }
+
+            boolean upstreamDone = done;
+            if (emitted == demand && !(upstreamDone && triggers.isEmpty())) {
+                break;
+            }
+            TriggerEvent<T> event = triggers.poll();
+            if (event == null) {
+                if (upstreamDone) {
+                    cancelled = true;
+                    stopListening();
+                    Throwable throwable = error;
+                    if (throwable != null) {
+                        subscriber.onError(throwable);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return false;
+                }
+                break;
+            }
+            if (++consumed == batchSize) {
+                consumed = 0;
+                upstream.request(batchSize);
+            }
+            if (!listening) {
+                stateMachine.onTransitioned(listener);
+                listening = true;
+            }
+            firing = true;
+            try {
+                fire(event);
+            } catch (RuntimeException e) {
+                terminate(subscriber, e);
+                return false;
+            } finally {
+                firing = false;
+            }
+        }
+        if (emitted != 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+        }
+        return true;
+    }
+
+    private void terminate(Flow.Subscriber<? super Transition<S, T>> subscriber, Throwable throwable) {
+        cancelled = true;
+        cancelUpstream();
+        triggers.clear();
+        transitions.clear();
+        stopListening();
+        subscriber.onError(throwable);
+    }
+
+    private void stopListening() {
+        if (listening) {
+            stateMachine.removeTransitionListener(listener);
+            listening = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fire(TriggerEvent<T> event) {
+        T trigger = event.getTrigger();
+        Object[] args = event.getArgs();
+        if (args.length == 0) {
+            stateMachine.fire(trigger);
+            return;
+        }
+        TriggerWithParameters<S, T> configuration = stateMachine.configuration().getTriggerConfiguration(trigger);
+        if (args.length == 1 && configuration instanceof TriggerWithParameters1) {
+            stateMachine.fire((TriggerWithParameters1<Object, S, T>) configuration, args[0]);
+        } else if (args.length == 2 && configuration instanceof TriggerWithParameters2) {
+            stateMachine.fire((TriggerWithParameters2<Object, Object, S, T>) configuration, args[0], args[1]);
+        } else if (args.length == 3 && configuration instanceof TriggerWithParameters3) {
+            stateMachine.fire((TriggerWithParameters3<Object, Object, Object, S, T>) configuration, args[0], args[1], args[2]);
+        } else {
+            throw new IllegalStateException("Trigger '" + trigger + "' is not configured with " + args.length + " parameters.");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+import com.github.oxo42.stateless4j.timers.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the transitions of state machines to readers on other threads through a ring of preallocated events, so
+ * that slow consumers such as audit logs do not add to the latency of fire. Attach it with
+ * {@link StateMachine#publishTransitions(TransitionRingBuffer)}.
+ * <p>
+ * Publishing a transition claims the next sequence, copies the transition and its arguments into the slot of that
+ * sequence and publishes the slot with a volatile write, without allocating or locking. Each reader reads every
+ * transition published after it was added, in order, at its own pace. When the ring is full, the publisher waits
+ * for the slowest reader, so readers must keep up or be removed; without readers, transitions are overwritten.
+ * Several machines, fired on any threads, may publish to the same ring.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class TransitionRingBuffer<S, T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<Reader> READ = AtomicLongFieldUpdater.newUpdater(Reader.class, "next");
+    private static final Reader<?, ?>[] NO_READERS = new Reader<?, ?>[0];
+
+    private final TransitionEvent<S, T>[] events;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final Clock clock;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong fullWaits = new AtomicLong();
+    private volatile Reader<?, ?>[] readers = NO_READERS;
+    private volatile long gatingCache; // a lower bound of the sequence the slowest reader reads next
+
+    /**
+     * @param capacity     The minimum number of slots, rounded up to a power of two
+     * @param waitStrategy How readers wait for transitions
+     */
+    public TransitionRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, Clock.SYSTEM);
+    }
+
+    /**
+     * @param capacity     The minimum number of slots, rounded up to a power of two
+     * @param waitStrategy How readers wait for transitions
+     * @param clock        The source of the timestamps of the transitions
+     */
+    @SuppressWarnings("unchecked")
+    public TransitionRingBuffer(int capacity, WaitStrategy waitStrategy, Clock clock) {
+        assert waitStrategy != null : "waitStrategy is null";
+        assert clock != null : "clock is null";
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalStateException("The capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        events = new TransitionEvent[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new TransitionEvent<>(i - size); // not published until written with sequence i
+        }
+        mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.clock = clock;
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * @return The number of transitions claimed by publishers, which is the sequence of the next one
+     */
+    public long getPublishedCount() {
+        return claimed.get();
+    }
+
+    /**
+     * @return The number of transitions whose publisher had to wait for a reader because the ring was full
+     */
+    public long getFullWaitCount() {
+        return fullWaits.get();
+    }
+
+    /**
+     * Add a reader that reads the transitions published from now on. Until it is closed, publishers wait for it
+     * when the ring is full.
+     *
+     * @return The reader
+     */
+    public synchronized Reader<S, T> addReader() {
+        Reader<S, T> reader = new Reader<>(this, claimed.get());
+        Reader<?, ?>[] grown = Arrays.copyOf(readers, readers.length + 1);
+        grown[readers.length] = reader;
+        readers = grown;
+        return reader;
+    }
+
+    private synchronized void removeReader(Reader<S, T> reader) {
+        Reader<?, ?>[] current = readers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == reader) {
+                Reader<?, ?>[] shrunk = new Reader<?, ?>[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+                readers = shrunk;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publish a transition. Called by a state machine the ring is attached to, once the entry actions of the
+     * transition have run; the arguments are passed as to {@link StateMachine#fire}, separately or in an array.
+     *
+     * @param machine       The machine that took the transition
+     * @param source        The source state
+     * @param trigger       The trigger
+     * @param destination   The destination state
+     * @param argumentCount The number of arguments of the trigger
+     * @param arg0          The first argument, if any
+     * @param arg1          The second argument, if any
+     * @param arg2          The third argument, if any
+     * @param args          All the arguments, or null if they were passed separately
+     * @return The sequence of the transition
+     */
+    public long publish(StateMachine<S, T> machine, S source, T trigger, S destination,
+                        int argumentCount, Object arg0, Object arg1, Object arg2, Object[] args) {
+        long sequence = claimed.getAndIncrement();
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint >= gatingCache) {
+            awaitReaders(wrapPoint);
+        }
+        TransitionEvent<S, T> event = events[(int) sequence & mask];
+        event.set(machine, source, trigger, destination, clock.nanoTime(), argumentCount, arg0, arg1, arg2, args);
+        event.sequence = sequence;
+        waitStrategy.signal();
+        return sequence;
+    }
+
+    /**
+     * Wait until every reader has read the transition last held by the slot to reuse
+     */
+    private void awaitReaders(long wrapPoint) {
+        boolean waited = false;
+        while (true) {
+            long slowest = Long.MAX_VALUE;
+            for (Reader<?, ?> reader : readers) {
+                slowest = Math.min(slowest, reader.next);
+            }
+            // readers added later start beyond the sequences claimed so far
+            gatingCache = slowest == Long.MAX_VALUE ? wrapPoint + 1 : slowest;
+            if (wrapPoint < slowest) {
+                return;
+            }
+            if (!waited) {
+                waited = true;
+                fullWaits.incrementAndGet();
+            }
+            LockSupport.parkNanos(1);
+        }
+    }
+
+    /**
+     * Reads the transitions of a ring in order, on one thread at a time
+     *
+     * @param <S> The type used to represent the states
+     * @param <T> The type used to represent the triggers that cause state transitions
+     */
+    public static final class Reader<S, T> {
+
+        private final TransitionRingBuffer<S, T> ring;
+        private final FuncBoolean available = new FuncBoolean() {
+            @Override
+            public boolean call() {
+                return isPublished(next);
+            }
+        };
+        volatile long next; // the sequence to read next; published with ordered writes, read by publishers
+        private boolean closed;
+
+        Reader(TransitionRingBuffer<S, T> ring, long next) {
+            this.ring = ring;
+            this.next = next;
+        }
+
+        private boolean isPublished(long sequence) {
+            return ring.events[(int) sequence & ring.mask].sequence == sequence;
+        }
+
+        /**
+         * Handle the transitions published so far, without waiting
+         *
+         * @param handler Called with each transition, in order
+         * @return The number of transitions handled
+         */
+        public int poll(Action1<? super TransitionEvent<S, T>> handler) {
+            assert handler != null : "handler is null";
+            if (closed) {
+                throw new IllegalStateException("The reader is closed.");
+            }
+            long first = next;
+            long sequence = first;
+            try {
+                while (isPublished(sequence)) {
+                    handler.doIt(ring.events[(int) sequence & ring.mask]);
+                    sequence++;
+                }
+            } finally {
+                // a handler that throws has handled the transitions before the one it failed on
+                READ.lazySet(this, sequence);
+            }
+            return (int) (sequence - first);
+        }
+
+        /**
+         * Handle the transitions published so far, waiting with the ring's wait strategy until there is at least one
+         *
+         * @param handler Called with each transition, in order
+         * @param timeout The longest time to wait
+         * @param unit    The unit of the timeout
+         * @return The number of transitions handled, 0 if none was published before the timeout
+         * @throws InterruptedException If the thread is interrupted while waiting
+         */
+        public int take(Action1<? super TransitionEvent<S, T>> handler, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (int attempt = 0; !available.call(); attempt++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return 0;
+                }
+                ring.waitStrategy.idle(available, attempt, deadline);
+            }
+            return poll(handler);
+        }
+
+        /**
+         * @return The sequence of the next transition to read
+         */
+        public long getSequence() {
+            return next;
+        }
+
+        /**
+         * @return The number of transitions claimed by publishers that this reader has not read yet
+         */
+        public long getLag() {
+            return Math.max(0, ring.claimed.get() - next);
+        }
+
+        /**
+         * Stop reading, so that publishers no longer wait for this reader
+         */
+        public void close() {
+            closed = true;
+            ring.removeReader(this);
+        }
+    }
+}
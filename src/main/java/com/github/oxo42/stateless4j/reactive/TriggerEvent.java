@@ -0,0 +1,39 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import java.util.Arrays;
+
+/**
+ * A trigger to fire, with its arguments
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public final class TriggerEvent<T> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final T trigger;
+    private final Object[] args;
+
+    /**
+     * @param trigger The trigger
+     * @param args    The arguments, which must match the parameters configured for the trigger
+     */
+    public TriggerEvent(T trigger, Object... args) {
+        assert trigger != null : "trigger is null";
+        this.trigger = trigger;
+        this.args = args == null || args.length == 0 ? NO_ARGS : args;
+    }
+
+    public T getTrigger() {
+        return trigger;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return args.length == 0 ? String.valueOf(trigger) : trigger + Arrays.toString(args);
+    }
+}
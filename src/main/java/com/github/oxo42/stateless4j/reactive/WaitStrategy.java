@@ -0,0 +1,134 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * How a reader of a {@link TransitionRingBuffer} waits for transitions to be published, trading latency against the
+ * CPU used by idle readers
+ */
+public abstract class WaitStrategy {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+
+    WaitStrategy() {
+    }
+
+    /**
+     * Readers spin without pausing: the lowest latency, at the cost of a core per idle reader
+     *
+     * @return The strategy
+     */
+    public static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            @Override
+            void idle(FuncBoolean available, int attempt, long deadlineNanos) {
+            }
+        };
+    }
+
+    /**
+     * Readers spin briefly, then yield the processor between checks
+     *
+     * @return The strategy
+     */
+    public static WaitStrategy yielding() {
+        return new WaitStrategy() {
+            @Override
+            void idle(FuncBoolean available, int attempt, long deadlineNanos) {
+                if (attempt >= SPINS) {
+                    Thread.yield();
+                }
+            }
+        };
+    }
+
+    /**
+     * Readers spin briefly, then yield, then sleep for the supplied period between checks
+     *
+     * @param period The longest sleep
+     * @param unit   The unit of the period
+     * @return The strategy
+     */
+    public static WaitStrategy sleeping(long period, TimeUnit unit) {
+        final long periodNanos = unit.toNanos(period);
+        if (periodNanos <= 0) {
+            throw new IllegalStateException("The sleep period must be positive: " + period + " " + unit);
+        }
+        return new WaitStrategy() {
+            @Override
+            void idle(FuncBoolean available, int attempt, long deadlineNanos) {
+                if (attempt >= SPINS + YIELDS) {
+                    LockSupport.parkNanos(Math.min(periodNanos, deadlineNanos - System.nanoTime()));
+                } else if (attempt >= SPINS) {
+                    Thread.yield();
+                }
+            }
+        };
+    }
+
+    /**
+     * Readers block until woken by the publisher, which only takes a lock when a reader is blocked
+     *
+     * @return The strategy
+     */
+    public static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    /**
+     * Called by a reader that found no transition to read
+     *
+     * @param available     True once a transition can be read
+     * @param attempt       The number of times the reader has been idle since it last read, starting at 0
+     * @param deadlineNanos The {@link System#nanoTime()} beyond which the reader stops waiting
+     */
+    abstract void idle(FuncBoolean available, int attempt, long deadlineNanos) throws InterruptedException;
+
+    /**
+     * Called by the publisher after each transition is published
+     */
+    void signal() {
+    }
+
+    private static final class Blocking extends WaitStrategy {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private volatile int blocked;
+
+        @Override
+        void idle(FuncBoolean available, int attempt, long deadlineNanos) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                blocked++;
+                // the publisher writes the sequence of the slot, then reads blocked, both volatile, so it either
+                // sees this reader blocked or this check sees the transition
+                long remaining = deadlineNanos - System.nanoTime();
+                while (!available.call() && remaining > 0) {
+                    remaining = published.awaitNanos(remaining);
+                }
+            } finally {
+                blocked--;
+                lock.unlock();
+            }
+        }
+
+        @Override
+        void signal() {
+            if (blocked != 0) {
+                lock.lock();
+                try {
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.oxo42.stateless4j.timers;
+
+/**
+ * Source of monotonic time for a {@link TimerWheel}
+ */
+public interface Clock {
+
+    /**
+     * Clock backed by {@link System#nanoTime()}
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Returns the current value of the clock
+     *
+     * @return Current time in nanoseconds, relative to an arbitrary origin
+     */
+    long nanoTime();
+}
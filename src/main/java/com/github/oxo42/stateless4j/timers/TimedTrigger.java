@@ -0,0 +1,41 @@
+package com.github.oxo42.stateless4j.timers;
+
+/**
+ * A trigger that fires automatically once a state has been occupied for a given delay
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class TimedTrigger<T> {
+
+    private final T trigger;
+    private final long delayNanos;
+
+    /**
+     * Construct a timed trigger
+     *
+     * @param trigger    The trigger to fire
+     * @param delayNanos The delay in nanoseconds
+     */
+    public TimedTrigger(T trigger, long delayNanos) {
+        this.trigger = trigger;
+        this.delayNanos = delayNanos;
+    }
+
+    /**
+     * The trigger to fire
+     *
+     * @return The trigger to fire
+     */
+    public T getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * The delay after which the trigger fires
+     *
+     * @return The delay in nanoseconds
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+}
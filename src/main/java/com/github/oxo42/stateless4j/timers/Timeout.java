@@ -0,0 +1,63 @@
+package com.github.oxo42.stateless4j.timers;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+
+/**
+ * A timer scheduled on a {@link TimerWheel}. The timeout is linked directly into its wheel bucket, so scheduling
+ * and cancelling it do not allocate and take constant time.
+ */
+public class Timeout {
+
+    private final Action task;
+
+    TimerWheel wheel;
+    long deadline;
+    Timeout prev;
+    Timeout next;
+
+    /**
+     * Create a timeout that executes the task when it expires
+     *
+     * @param task Task to execute
+     */
+    public Timeout(Action task) {
+        assert task != null : "task is null";
+        this.task = task;
+    }
+
+    /**
+     * Create a timeout for subclasses that override {@link #expire()}
+     */
+    protected Timeout() {
+        this.task = null;
+    }
+
+    /**
+     * Called by the wheel's driver thread when the timeout expires
+     */
+    protected void expire() {
+        task.doIt();
+    }
+
+    /**
+     * True if the timeout is scheduled and has neither expired nor been cancelled
+     *
+     * @return True if the timeout is pending
+     */
+    public boolean isPending() {
+        return wheel != null;
+    }
+
+    /**
+     * Cancel the timeout
+     *
+     * @return True if the timeout was pending
+     */
+    public boolean cancel() {
+        if (wheel == null) {
+            return false;
+        }
+        wheel.remove(this);
+        return true;
+    }
+}
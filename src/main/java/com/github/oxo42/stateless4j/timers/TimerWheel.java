@@ -0,0 +1,257 @@
+package com.github.oxo42.stateless4j.timers;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed hierarchical timing wheel.
+ * <p>
+ * Timeouts are kept in doubly linked bucket lists. A root wheel of 256 buckets holds timeouts due within 256 ticks,
+ * four outer wheels of 64 buckets hold later timeouts and are cascaded into the finer wheels as time advances, so
+ * scheduling and cancelling are constant time regardless of the number of outstanding timeouts.
+ * <p>
+ * The wheel is not thread safe. It is meant to be owned by a single driver thread, which schedules and cancels
+ * timeouts (usually by firing state machines) and calls {@link #advance()} periodically, for instance once per tick.
+ * Expired timeouts run on the thread that calls {@link #advance()}.
+ */
+public class TimerWheel {
+
+    private static final int ROOT_BITS = 8;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (ROOT_BITS + LEVELS * LEVEL_BITS)) - 1;
+
+    private final Clock clock;
+    private final long tickNanos;
+    private final long origin;
+    private final Timeout[] root = new Timeout[ROOT_SIZE];
+    private final Timeout[][] levels = new Timeout[LEVELS][LEVEL_SIZE];
+    private final Timeout expiring = sentinel(); // the timeouts of the tick being expired, which may cancel each other
+    private long currentTick; // next tick to be processed
+    private boolean advancing;
+    private int size;
+
+    /**
+     * Create a wheel driven by the system clock
+     *
+     * @param tickDuration Duration of one tick, which is the resolution of the wheel
+     * @param unit         Unit of tickDuration
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, Clock.SYSTEM);
+    }
+
+    /**
+     * Create a wheel
+     *
+     * @param tickDuration Duration of one tick, which is the resolution of the wheel
+     * @param unit         Unit of tickDuration
+     * @param clock        Clock used to compute deadlines and expire timeouts
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, Clock clock) {
+        assert unit != null : "unit is null";
+        assert clock != null : "clock is null";
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalStateException("The tick duration must be positive.");
+        }
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+        for (int i = 0; i < ROOT_SIZE; i++) {
+            root[i] = sentinel();
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < LEVEL_SIZE; i++) {
+                levels[level][i] = sentinel();
+            }
+        }
+    }
+
+    private static Timeout sentinel() {
+        Timeout head = new Timeout();
+        head.prev = head;
+        head.next = head;
+        return head;
+    }
+
+    /**
+     * Schedule a task
+     *
+     * @param task  The task to execute when the timeout expires
+     * @param delay Delay after which the timeout expires
+     * @param unit  Unit of delay
+     * @return The scheduled timeout, which can be cancelled
+     */
+    public Timeout schedule(Action task, long delay, TimeUnit unit) {
+        return schedule(new Timeout(task), delay, unit);
+    }
+
+    /**
+     * Schedule a timeout that is not currently pending
+     *
+     * @param timeout The timeout to schedule
+     * @param delay   Delay after which the timeout expires
+     * @param unit    Unit of delay
+     * @param <U>     Type of the timeout
+     * @return The timeout
+     */
+    public <U extends Timeout> U schedule(U timeout, long delay, TimeUnit unit) {
+        assert timeout != null : "timeout is null";
+        if (timeout.wheel != null) {
+            throw new IllegalStateException("The timeout is already scheduled.");
+        }
+        long elapsed = clock.nanoTime() - origin;
+        long delayNanos = Math.max(0, unit.toNanos(delay));
+        timeout.deadline = (elapsed + delayNanos + tickNanos - 1) / tickNanos;
+        timeout.wheel = this;
+        add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Expire every timeout whose deadline has passed according to the clock.
+     * <p>
+     * The timeouts due in a tick are detached from the wheel before any of them runs, so a timeout that throws does
+     * not hold back the others: every due timeout still expires, and the first exception is rethrown once they all
+     * have, with the later ones added to it as suppressed exceptions.
+     *
+     * @return The number of timeouts that expired
+     */
+    public int advance() {
+        if (advancing) {
+            throw new IllegalStateException("The wheel cannot be advanced by an expiring timeout.");
+        }
+        advancing = true;
+        long targetTick = (clock.nanoTime() - origin) / tickNanos;
+        int expired = 0;
+        RuntimeException failure = null;
+        try {
+            while (currentTick <= targetTick) {
+                if (size == 0) {
+                    currentTick = targetTick + 1;
+                    break;
+                }
+                int index = (int) (currentTick & ROOT_MASK);
+                if (index == 0) {
+                    cascade();
+                }
+                currentTick++;
+                detach(root[index]);
+                while (expiring.next != expiring) {
+                    Timeout timeout = expiring.next;
+                    unlink(timeout);
+                    if (timeout.deadline >= currentTick) {
+                        // only timeouts clamped beyond the range of the outermost wheel end up here early
+                        add(timeout);
+                        continue;
+                    }
+                    timeout.wheel = null;
+                    size--;
+                    expired++;
+                    try {
+                        timeout.expire();
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            // an error thrown by a timeout leaves the rest of its tick due for the next call
+            while (expiring.next != expiring) {
+                Timeout timeout = expiring.next;
+                unlink(timeout);
+                add(timeout);
+            }
+            advancing = false;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return expired;
+    }
+
+    /**
+     * Move the timeouts of a bucket to the expiring list, which is empty
+     */
+    private void detach(Timeout head) {
+        if (head.next == head) {
+            return;
+        }
+        expiring.next = head.next;
+        expiring.prev = head.prev;
+        head.next.prev = expiring;
+        head.prev.next = expiring;
+        head.next = head;
+        head.prev = head;
+    }
+
+    /**
+     * The number of pending timeouts
+     *
+     * @return The number of pending timeouts
+     */
+    public int size() {
+        return size;
+    }
+
+    void remove(Timeout timeout) {
+        unlink(timeout);
+        timeout.wheel = null;
+        size--;
+    }
+
+    private void cascade() {
+        for (int level = 0; level < LEVELS; level++) {
+            int index = (int) ((currentTick >>> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK);
+            Timeout head = levels[level][index];
+            while (head.next != head) {
+                Timeout timeout = head.next;
+                unlink(timeout);
+                add(timeout);
+            }
+            if (index != 0) {
+                break;
+            }
+        }
+    }
+
+    private void add(Timeout timeout) {
+        long expires = timeout.deadline;
+        long delta = expires - currentTick;
+        Timeout head;
+        if (delta < ROOT_SIZE) {
+            head = root[(int) ((delta < 0 ? currentTick : expires) & ROOT_MASK)];
+        } else {
+            if (delta > MAX_DELTA) {
+                expires = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+            int level = 0;
+            while (delta >= 1L << (ROOT_BITS + (level + 1) * LEVEL_BITS)) {
+                level++;
+            }
+            head = levels[level][(int) ((expires >>> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK)];
+        }
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+}
@@ -9,6 +9,11 @@ public class TransitioningTriggerBehaviour<S, T> extends TriggerBehaviour<S, T>
 
     private final S destination;
 
+    public TransitioningTriggerBehaviour(final T trigger, S destination) {
+        super(trigger);
+        this.destination = destination;
+    }
+
     public TransitioningTriggerBehaviour(final T trigger, S destination, final Func2<Object[], Boolean> guard) {
         super(trigger, guard);
         this.destination = destination;
@@ -19,9 +24,18 @@ public class TransitioningTriggerBehaviour<S, T> extends TriggerBehaviour<S, T>
         this.destination = destination;
     }
 
+    public S getDestination() {
+        return destination;
+    }
+
     @Override
     public boolean resultsInTransitionFrom(S source, Object[] args, OutVar<S> dest) {
         dest.set(destination);
         return true;
     }
+
+    @Override
+    public S resolveDestination(S source, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        return destination;
+    }
 }
@@ -0,0 +1,30 @@
+package com.github.oxo42.stateless4j.triggers;
+
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
+import com.github.oxo42.stateless4j.delegates.Func2;
+
+/**
+ * A guard or destination selector of a trigger with up to three parameters, which can be called with the arguments
+ * passed separately as well as in an array. Typed guards and selectors are adapted to it, so that a trigger fired
+ * with typed arguments reaches them without its arguments being packed into an array.
+ *
+ * @param <R> The type of the result
+ */
+public abstract class ArgumentsFunc<R> implements Func2<Object[], R> {
+
+    @Override
+    public R call(Object[] args) {
+        return call(ParameterConversion.argumentAt(args, 0), ParameterConversion.argumentAt(args, 1),
+                ParameterConversion.argumentAt(args, 2));
+    }
+
+    /**
+     * Call the function with the arguments of a trigger; arguments beyond those of the trigger are null
+     *
+     * @param arg0 The first argument
+     * @param arg1 The second argument
+     * @param arg2 The third argument
+     * @return The result
+     */
+    public abstract R call(Object arg0, Object arg1, Object arg2);
+}
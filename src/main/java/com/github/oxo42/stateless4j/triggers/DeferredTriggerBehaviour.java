@@ -0,0 +1,25 @@
+package com.github.oxo42.stateless4j.triggers;
+
+import com.github.oxo42.stateless4j.OutVar;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+
+public class DeferredTriggerBehaviour<TState, TTrigger> extends TriggerBehaviour<TState, TTrigger> {
+
+    public DeferredTriggerBehaviour(final TTrigger trigger) {
+        super(trigger);
+    }
+
+    public DeferredTriggerBehaviour(final TTrigger trigger, final FuncBoolean guard) {
+        super(trigger, guard);
+    }
+
+    @Override
+    public boolean resultsInTransitionFrom(TState source, Object[] args, OutVar<TState> dest) {
+        return false;
+    }
+
+    @Override
+    public TState resolveDestination(TState source, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.oxo42.stateless4j.triggers;
 
 import com.github.oxo42.stateless4j.OutVar;
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
 import com.github.oxo42.stateless4j.delegates.Func2;
 import com.github.oxo42.stateless4j.delegates.FuncBoolean;
 
@@ -8,6 +9,12 @@ public class DynamicTriggerBehaviour<S, T> extends TriggerBehaviour<S, T> {
 
     private final Func2<Object[], S> destination;
 
+    public DynamicTriggerBehaviour(final T trigger, final Func2<Object[], S> destination) {
+        super(trigger);
+        assert destination != null : "destination is null";
+        this.destination = destination;
+    }
+
     public DynamicTriggerBehaviour(final T trigger, final Func2<Object[], S> destination,
                                    final Func2<Object[], Boolean> guard) {
         super(trigger, guard);
@@ -26,4 +33,12 @@ public class DynamicTriggerBehaviour<S, T> extends TriggerBehaviour<S, T> {
         dest.set(destination.call(args));
         return true;
     }
+
+    @Override
+    public S resolveDestination(S source, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (destination instanceof ArgumentsFunc) {
+            return checkDestination(((ArgumentsFunc<S>) destination).call(arg0, arg1, arg2));
+        }
+        return checkDestination(destination.call(args != null ? args : ParameterConversion.pack(count, arg0, arg1, arg2)));
+    }
 }
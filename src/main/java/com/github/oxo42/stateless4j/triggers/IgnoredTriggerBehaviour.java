@@ -6,6 +6,10 @@ import com.github.oxo42.stateless4j.delegates.FuncBoolean;
 
 public class IgnoredTriggerBehaviour<TState, TTrigger> extends TriggerBehaviour<TState, TTrigger> {
 
+    public IgnoredTriggerBehaviour(final TTrigger trigger) {
+        super(trigger);
+    }
+
     public IgnoredTriggerBehaviour(final TTrigger trigger, final Func2<Object[], Boolean> guard) {
         super(trigger, guard);
     }
@@ -18,4 +22,9 @@ public class IgnoredTriggerBehaviour<TState, TTrigger> extends TriggerBehaviour<
     public boolean resultsInTransitionFrom(TState source, Object[] args, OutVar<TState> dest) {
         return false;
     }
+
+    @Override
+    public TState resolveDestination(TState source, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        return null;
+    }
 }
@@ -1,36 +1,107 @@
 package com.github.oxo42.stateless4j.triggers;
 
 import com.github.oxo42.stateless4j.OutVar;
+import com.github.oxo42.stateless4j.conversion.ParameterConversion;
 import com.github.oxo42.stateless4j.delegates.Func2;
 import com.github.oxo42.stateless4j.delegates.FuncBoolean;
 
 public abstract class TriggerBehaviour<S, T> {
 
     private final T trigger;
-    private final Func2<Object[], Boolean> guard;
+    private final Func2<Object[], Boolean> guard; // null: unguarded, or guarded by simpleGuard
+    private final FuncBoolean simpleGuard; // held as given rather than wrapped; null: unguarded, or guarded by guard
+
+    protected TriggerBehaviour(final T trigger) {
+        this.trigger = trigger;
+        this.guard = null;
+        this.simpleGuard = null;
+    }
 
     protected TriggerBehaviour(final T trigger, final Func2<Object[], Boolean> guard) {
         this.trigger = trigger;
         this.guard = guard;
+        this.simpleGuard = null;
     }
 
     protected TriggerBehaviour(final T trigger, final FuncBoolean guard) {
         this.trigger = trigger;
-        this.guard = new Func2<Object[], Boolean>() {
-            @Override
-            public Boolean call(final Object[] arg1) {
-                return guard.call();
-            }
-        };
+        this.guard = null;
+        this.simpleGuard = guard;
     }
 
     public T getTrigger() {
         return trigger;
     }
 
+    /**
+     * True if the behaviour only applies when a guard condition is met
+     *
+     * @return False if the behaviour was configured without a guard
+     */
+    public boolean isGuarded() {
+        return guard != null || simpleGuard != null;
+    }
+
     public boolean isGuardConditionMet(Object... args) {
-        return guard.call(args);
+        if (guard != null) {
+            return guard.call(args);
+        }
+        return simpleGuard == null || simpleGuard.call();
+    }
+
+    /**
+     * Like {@link #isGuardConditionMet(Object...)}, with the first three arguments also passed separately so that a
+     * guard adapted from a typed one is called without an array
+     *
+     * @param count The number of arguments
+     * @param arg0  The first argument, if any
+     * @param arg1  The second argument, if any
+     * @param arg2  The third argument, if any
+     * @param args  All the arguments, or null if the caller has no array, in which case there are at most three
+     * @return True if the behaviour is unguarded or its guard condition is met
+     */
+    public boolean isGuardConditionMet(int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        if (guard == null) {
+            return simpleGuard == null || simpleGuard.call();
+        }
+        if (guard instanceof ArgumentsFunc) {
+            return ((ArgumentsFunc<Boolean>) guard).call(arg0, arg1, arg2);
+        }
+        return guard.call(args != null ? args : ParameterConversion.pack(count, arg0, arg1, arg2));
     }
 
     public abstract boolean resultsInTransitionFrom(S source, Object[] args, OutVar<S> dest);
+
+    /**
+     * The destination of the transition that the behaviour causes, with the arguments passed as to
+     * {@link #isGuardConditionMet(int, Object, Object, Object, Object[])}. Subclasses override this to avoid the
+     * OutVar and array of {@link #resultsInTransitionFrom}.
+     *
+     * @param source The state the trigger is fired in
+     * @param count  The number of arguments
+     * @param arg0   The first argument, if any
+     * @param arg1   The second argument, if any
+     * @param arg2   The third argument, if any
+     * @param args   All the arguments, or null if the caller has no array
+     * @return The destination state, or null if the behaviour causes no transition, such as an ignored trigger
+     * @throws IllegalStateException If the behaviour causes a transition but its destination is null
+     */
+    public S resolveDestination(S source, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+        OutVar<S> destination = new OutVar<>();
+        if (resultsInTransitionFrom(source, args != null ? args : ParameterConversion.pack(count, arg0, arg1, arg2), destination)) {
+            return checkDestination(destination.get());
+        }
+        return null;
+    }
+
+    /**
+     * Null is reserved for behaviours that cause no transition, so a transition to null is a configuration error
+     * rather than a silently ignored trigger
+     */
+    S checkDestination(S destination) {
+        if (destination == null) {
+            throw new IllegalStateException("The destination of trigger '" + getTrigger() + "' is null.");
+        }
+        return destination;
+    }
 }
@@ -38,4 +38,16 @@ public abstract class TriggerWithParameters<TState, TTrigger> {
         assert args != null : "args is null";
         ParameterConversion.validate(args, argumentTypes);
     }
+
+    /**
+     * Ensure that up to three arguments passed separately are compatible with those configured for this trigger
+     *
+     * @param count The number of arguments
+     * @param arg0  The first argument, if any
+     * @param arg1  The second argument, if any
+     * @param arg2  The third argument, if any
+     */
+    public void validateParameters(int count, Object arg0, Object arg1, Object arg2) {
+        ParameterConversion.validate(count, arg0, arg1, arg2, argumentTypes);
+    }
 }
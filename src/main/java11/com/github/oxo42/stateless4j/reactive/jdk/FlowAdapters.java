@@ -0,0 +1,199 @@
+package com.github.oxo42.stateless4j.reactive.jdk;
+
+import com.github.oxo42.stateless4j.reactive.Flow;
+import com.github.oxo42.stateless4j.reactive.TransitionProcessor;
+
+/**
+ * Converts the reactive streams interfaces of {@link Flow} to and from those of {@link java.util.concurrent.Flow},
+ * so that a {@link TransitionProcessor} can be connected to the publishers and subscribers of the JDK.
+ * <p>
+ * Shipped in the separate java11 artifact, built from src/main/java11 on JDK 11+, as the main jar targets Java 7.
+ * The adapters add no buffering or threading: each signal is passed on as is.
+ */
+public final class FlowAdapters {
+
+    private FlowAdapters() {
+    }
+
+    /**
+     * @param processor The processor to adapt
+     * @return A JDK processor that passes every signal on to the given processor
+     */
+    public static <T, R> java.util.concurrent.Flow.Processor<T, R> toFlowProcessor(Flow.Processor<T, R> processor) {
+        assert processor != null : "processor is null";
+        return new JdkProcessor<>(processor);
+    }
+
+    /**
+     * @param publisher The publisher to adapt
+     * @return A JDK publisher that passes every signal on to the given publisher
+     */
+    public static <T> java.util.concurrent.Flow.Publisher<T> toFlowPublisher(Flow.Publisher<T> publisher) {
+        assert publisher != null : "publisher is null";
+        return new JdkPublisher<>(publisher);
+    }
+
+    /**
+     * @param publisher The JDK publisher to adapt
+     * @return A publisher that passes every signal on to the given JDK publisher
+     */
+    public static <T> Flow.Publisher<T> fromFlowPublisher(java.util.concurrent.Flow.Publisher<T> publisher) {
+        assert publisher != null : "publisher is null";
+        return new ReactivePublisher<>(publisher);
+    }
+
+    /**
+     * @param subscriber The subscriber to adapt
+     * @return A JDK subscriber that passes every signal on to the given subscriber
+     */
+    public static <T> java.util.concurrent.Flow.Subscriber<T> toFlowSubscriber(Flow.Subscriber<T> subscriber) {
+        assert subscriber != null : "subscriber is null";
+        return new JdkSubscriber<>(subscriber);
+    }
+
+    private static class JdkPublisher<T> implements java.util.concurrent.Flow.Publisher<T> {
+
+        private final Flow.Publisher<T> publisher;
+
+        JdkPublisher(Flow.Publisher<T> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void subscribe(java.util.concurrent.Flow.Subscriber<? super T> subscriber) {
+            publisher.subscribe(new ReactiveSubscriber<>(subscriber));
+        }
+    }
+
+    private static final class JdkProcessor<T, R> extends JdkPublisher<R>
+            implements java.util.concurrent.Flow.Processor<T, R> {
+
+        private final Flow.Processor<T, R> processor;
+
+        JdkProcessor(Flow.Processor<T, R> processor) {
+            super(processor);
+            this.processor = processor;
+        }
+
+        @Override
+        public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+            processor.onSubscribe(new ReactiveSubscription(subscription));
+        }
+
+        @Override
+        public void onNext(T item) {
+            processor.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            processor.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            processor.onComplete();
+        }
+    }
+
+    private static final class ReactivePublisher<T> implements Flow.Publisher<T> {
+
+        private final java.util.concurrent.Flow.Publisher<T> publisher;
+
+        ReactivePublisher(java.util.concurrent.Flow.Publisher<T> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            publisher.subscribe(new JdkSubscriber<>(subscriber));
+        }
+    }
+
+    private static final class JdkSubscriber<T> implements java.util.concurrent.Flow.Subscriber<T> {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        JdkSubscriber(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+            subscriber.onSubscribe(new ReactiveSubscription(subscription));
+        }
+
+        @Override
+        public void onNext(T item) {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+
+    private static final class ReactiveSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final java.util.concurrent.Flow.Subscriber<? super T> subscriber;
+
+        ReactiveSubscriber(java.util.concurrent.Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            subscriber.onSubscribe(new java.util.concurrent.Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(T item) {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+
+    private static final class ReactiveSubscription implements Flow.Subscription {
+
+        private final java.util.concurrent.Flow.Subscription subscription;
+
+        ReactiveSubscription(java.util.concurrent.Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.timers.Clock;
+import com.github.oxo42.stateless4j.timers.TimerWheel;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ConfigReloadTests {
+
+    StateMachineConfigHolder<State, Trigger> holder;
+    StateMachine<State, Trigger> sm;
+
+    long now = 0;
+
+    final Clock clock = new Clock() {
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    };
+
+    void advanceSeconds(TimerWheel wheel, long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+        wheel.advance();
+    }
+
+    static StateMachineConfig<State, Trigger> timedConfig(State destinationOfX, long timeoutSeconds) {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitAfter(Trigger.Z, State.C, timeoutSeconds, TimeUnit.SECONDS)
+                .permit(Trigger.X, destinationOfX)
+                .ignore(Trigger.Y);
+        config.configure(destinationOfX)
+                .permit(Trigger.Y, State.A);
+        return config;
+    }
+
+    static StateMachineConfig<State, Trigger> config(State destinationOfX) {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, destinationOfX);
+        config.configure(destinationOfX)
+                .permit(Trigger.Y, State.A);
+        return config;
+    }
+
+    @Test
+    public void PublishedConfigurationIsUsedByTheNextFire() {
+        holder = new StateMachineConfigHolder<>(config(State.B));
+        sm = new StateMachine<>(State.A, holder);
+
+        assertEquals(2, holder.publish(config(State.C)));
+        assertFalse(holder.getConfig().isMutable());
+        sm.fire(Trigger.X);
+
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void FireInProgressCompletesOnItsVersion() {
+        StateMachineConfig<State, Trigger> first = new StateMachineConfig<>();
+        first.configure(State.A)
+                .permit(Trigger.X, State.B);
+        first.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        holder.publish(config(State.C));
+                        sm.fire(Trigger.Z);
+                    }
+                })
+                .permit(Trigger.Z, State.A);
+        holder = new StateMachineConfigHolder<>(first);
+        sm = new StateMachine<>(State.A, holder);
+
+        sm.fire(Trigger.X);
+        assertEquals(State.A, sm.getState());
+
+        sm.fire(Trigger.X);
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void StatesMissingFromNewVersionAreMapped() {
+        holder = new StateMachineConfigHolder<>(config(State.B));
+        sm = new StateMachine<>(State.A, holder);
+        sm.fire(Trigger.X);
+
+        holder.publish(config(State.C), new Func2<State, State>() {
+            @Override
+            public State call(State state) {
+                return state == State.B ? State.C : state;
+            }
+        });
+        sm.fire(Trigger.Y);
+
+        assertEquals(State.A, sm.getState());
+    }
+
+    @Test
+    public void UnchangedTimeoutKeepsItsDeadlineAcrossReload() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        holder = new StateMachineConfigHolder<>(timedConfig(State.B, 30));
+        sm = new StateMachine<>(State.A, holder);
+        sm.useTimerWheel(wheel);
+
+        advanceSeconds(wheel, 20);
+        holder.publish(timedConfig(State.C, 30));
+        sm.fire(Trigger.Y);
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(wheel, 10);
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void ChangedTimeoutIsRearmedOnReload() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        holder = new StateMachineConfigHolder<>(timedConfig(State.B, 30));
+        sm = new StateMachine<>(State.A, holder);
+        sm.useTimerWheel(wheel);
+
+        advanceSeconds(wheel, 20);
+        holder.publish(timedConfig(State.B, 60));
+        sm.fire(Trigger.Y);
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(wheel, 10);
+        assertEquals(State.A, sm.getState());
+        advanceSeconds(wheel, 50);
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void MappingsOfSkippedVersionsAreApplied() {
+        holder = new StateMachineConfigHolder<>(config(State.B));
+        sm = new StateMachine<>(State.A, holder);
+        sm.fire(Trigger.X);
+
+        holder.publish(config(State.C), new Func2<State, State>() {
+            @Override
+            public State call(State state) {
+                return state == State.B ? State.C : state;
+            }
+        });
+        StateMachineConfig<State, Trigger> third = new StateMachineConfig<>();
+        third.configure(State.A)
+                .ignore(Trigger.Y);
+        holder.publish(third, new Func2<State, State>() {
+            @Override
+            public State call(State state) {
+                return state == State.C ? State.A : state;
+            }
+        });
+        sm.fire(Trigger.Y);
+
+        assertEquals(State.A, sm.getState());
+    }
+
+    @Test
+    public void RemappedStateStopsTheOldRegionsAndStartsItsOwn() {
+        final List<Transition<RegionTests.Device, RegionTests.Signal>> transitions = new ArrayList<>();
+        StateMachineConfig<RegionTests.Device, RegionTests.Signal> first = new StateMachineConfig<>();
+        first.configure(RegionTests.Device.On)
+                .region(RegionTests.Device.PowerLow);
+        first.configure(RegionTests.Device.PowerLow)
+                .permit(RegionTests.Signal.Boost, RegionTests.Device.PowerHigh);
+        StateMachineConfigHolder<RegionTests.Device, RegionTests.Signal> devices = new StateMachineConfigHolder<>(first);
+        StateMachine<RegionTests.Device, RegionTests.Signal> device = new StateMachine<>(RegionTests.Device.On, devices);
+        device.onTransitioned(new Action1<Transition<RegionTests.Device, RegionTests.Signal>>() {
+            @Override
+            public void doIt(Transition<RegionTests.Device, RegionTests.Signal> transition) {
+                transitions.add(transition);
+            }
+        });
+
+        StateMachineConfig<RegionTests.Device, RegionTests.Signal> second = new StateMachineConfig<>();
+        second.configure(RegionTests.Device.Off)
+                .region(RegionTests.Device.Offline);
+        second.configure(RegionTests.Device.Offline)
+                .permit(RegionTests.Signal.Connect, RegionTests.Device.Online);
+        devices.publish(second, new Func2<RegionTests.Device, RegionTests.Device>() {
+            @Override
+            public RegionTests.Device call(RegionTests.Device state) {
+                return state == RegionTests.Device.On ? RegionTests.Device.Off : state;
+            }
+        });
+        device.fire(RegionTests.Signal.Connect);
+
+        assertEquals(RegionTests.Device.Off, device.getState());
+        assertEquals(1, transitions.size());
+        assertEquals(RegionTests.Device.Offline, transitions.get(0).getSource());
+        assertEquals(RegionTests.Device.Online, transitions.get(0).getDestination());
+        assertFalse(device.canFire(RegionTests.Signal.Boost));
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredTriggerTests {
+
+    final List<String> entered = new ArrayList<>();
+
+    @Test
+    public void DeferredTriggerDoesNotChangeState() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Y);
+
+        assertEquals(State.A, sm.getState());
+    }
+
+    @Test
+    public void DeferredTriggerFiresAfterLeavingDeferringState() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Y);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void ResetDiscardsDeferredTriggers() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Y);
+        sm.reset(State.A);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.B, sm.getState());
+    }
+
+    @Test
+    public void DeferredTriggersKeepTheirOrder() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .defer(Trigger.Z)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C)
+                .defer(Trigger.Z);
+        config.configure(State.C)
+                .permit(Trigger.Z, State.A);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Z);
+        sm.fire(Trigger.Y);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.A, sm.getState());
+        assertTrue(sm.canFire(Trigger.X));
+    }
+
+    @Test
+    public void DeferredTriggerStaysDeferredWhileNewStateDefersIt() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.C);
+        config.configure(State.C)
+                .permit(Trigger.Y, State.A);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Y);
+        sm.fire(Trigger.X);
+        assertEquals(State.B, sm.getState());
+
+        sm.fire(Trigger.X);
+        assertEquals(State.A, sm.getState());
+    }
+
+    @Test
+    public void DeferredTriggerKeepsItsParameters() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, State, Trigger> y = config.setTriggerParameters(Trigger.Y, String.class);
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C);
+        config.configure(State.C)
+                .onEntryFrom(y, new Action1<String>() {
+                    @Override
+                    public void doIt(String arg) {
+                        entered.add(arg);
+                    }
+                }, String.class);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(y, "deferred");
+        sm.fire(Trigger.X);
+
+        assertEquals(State.C, sm.getState());
+        assertEquals(1, entered.size());
+        assertEquals("deferred", entered.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeferredTriggerParametersAreValidatedWhenFired() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Trigger.Y, String.class);
+        config.configure(State.A)
+                .defer(Trigger.Y);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.Y);
+    }
+
+    @Test
+    public void DeferralGuardIsRespected() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        TriggerWithParameters1<Integer, State, Trigger> y = config.setTriggerParameters(Trigger.Y, Integer.class);
+        config.configure(State.A)
+                .deferIf(Trigger.Y, IgnoredTriggerBehaviourTests.RETURN_FALSE)
+                .permitDynamic(y, new Func2<Integer, State>() {
+                    @Override
+                    public State call(Integer i) {
+                        return i == 1 ? State.B : State.C;
+                    }
+                });
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(y, 2);
+
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void ManyDeferredTriggersAreAllReplayed() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action1<Transition<State, Trigger>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger> t) {
+                        entered.add(String.valueOf(t.getTrigger()));
+                    }
+                })
+                .permitReentry(Trigger.Y);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        for (int i = 0; i < 10; i++) {
+            sm.fire(Trigger.Y);
+        }
+        sm.fire(Trigger.X);
+
+        assertEquals(11, entered.size());
+        assertEquals("X", entered.get(0));
+        assertEquals("Y", entered.get(10));
+    }
+
+    @Test
+    public void UnhandledDeferredTriggerIsDroppedWithoutFailingTheFire() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.X, State.A);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.onUnhandledDeferredTrigger(new Action2<State, Trigger>() {
+            @Override
+            public void doIt(State state, Trigger trigger) {
+                entered.add(state + " " + trigger);
+            }
+        });
+        sm.fire(Trigger.Y);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.B, sm.getState());
+        assertEquals(1, entered.size());
+        assertEquals("B Y", entered.get(0));
+
+        sm.fire(Trigger.X);
+        assertEquals(State.A, sm.getState());
+        assertEquals(1, entered.size());
+    }
+
+    @Test
+    public void DeferredTriggersAreReplayedOnceTheOutermostFireCompletes() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        final StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        config.configure(State.A)
+                .defer(Trigger.Y)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        entered.add("entering B");
+                        sm.fire(Trigger.Z);
+                        entered.add("entered B");
+                    }
+                })
+                .permit(Trigger.Z, State.C);
+        config.configure(State.C)
+                .onEntry(new Action1<Transition<State, Trigger>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger> t) {
+                        entered.add("C from " + t.getTrigger());
+                    }
+                })
+                .permitReentry(Trigger.Y);
+
+        sm.fire(Trigger.Y);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.C, sm.getState());
+        assertEquals("[entering B, C from Z, entered B, C from Y]", entered.toString());
+    }
+}
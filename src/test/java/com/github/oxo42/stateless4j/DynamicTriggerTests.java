@@ -44,4 +44,37 @@ public class DynamicTriggerTests {
 
         assertEquals(State.B, sm.getState());
     }
+
+    @Test
+    public void NullDynamicDestinationFailsTheFire() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        TriggerWithParameters1<Integer, State, Trigger> trigger = config.setTriggerParameters(
+                Trigger.X, Integer.class);
+        config.configure(State.A).permitDynamic(trigger, new Func2<Integer, State>() {
+            @Override
+            public State call(Integer i) {
+                return i == 1 ? State.B : null;
+            }
+        });
+        config.configure(State.A).permitDynamic(Trigger.Y, new Func<State>() {
+            @Override
+            public State call() {
+                return null;
+            }
+        });
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        try {
+            sm.fire(trigger, 2);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            assertEquals(State.A, sm.getState());
+        }
+        try {
+            sm.fire(Trigger.Y);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            assertEquals(State.A, sm.getState());
+        }
+    }
 }
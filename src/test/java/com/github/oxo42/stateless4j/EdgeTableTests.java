@@ -0,0 +1,144 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EdgeTableTests {
+
+    static final Func2<String, State> STATE = new Func2<String, State>() {
+        @Override
+        public State call(String field) {
+            return State.valueOf(field);
+        }
+    };
+
+    static final Func2<String, Trigger> TRIGGER = new Func2<String, Trigger>() {
+        @Override
+        public Trigger call(String field) {
+            return Trigger.valueOf(field);
+        }
+    };
+
+    @Test
+    public void EdgeArraysConfigureTransitions() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>(3);
+        config.addEdges(
+                new State[]{State.A, State.A, State.B},
+                new Trigger[]{Trigger.X, Trigger.Y, Trigger.X},
+                new State[]{State.B, State.C, State.A});
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.X);
+        assertEquals(State.B, sm.getState());
+        assertFalse(sm.canFire(Trigger.Y));
+        sm.fire(Trigger.X);
+        sm.fire(Trigger.Y);
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void IdentityEdgeIsReentry() throws IOException {
+        final List<String> actions = new ArrayList<>();
+        for (boolean fromReader : new boolean[]{false, true}) {
+            actions.clear();
+            StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+            config.configure(State.A)
+                    .onEntry(new Action() {
+                        @Override
+                        public void doIt() {
+                            actions.add("enter A");
+                        }
+                    })
+                    .onExit(new Action() {
+                        @Override
+                        public void doIt() {
+                            actions.add("exit A");
+                        }
+                    });
+            if (fromReader) {
+                config.loadEdges(new StringReader("A,Z,A\n"), ',', STATE, TRIGGER);
+            } else {
+                config.addEdges(new State[]{State.A}, new Trigger[]{Trigger.Z}, new State[]{State.A});
+            }
+
+            StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+            sm.fire(Trigger.Z);
+
+            assertEquals(State.A, sm.getState());
+            assertEquals(Arrays.asList("exit A", "enter A"), actions);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void EdgeArraysMustHaveTheSameLength() {
+        new StateMachineConfig<State, Trigger>().addEdges(
+                new State[]{State.A, State.B},
+                new Trigger[]{Trigger.X},
+                new State[]{State.B, State.C});
+    }
+
+    @Test
+    public void EdgeTableIsLoadedFromReader() throws IOException {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.loadEdges(new StringReader("# source\ttrigger\tdestination\nA\tX\tB\n\n B \t Y \t C \n"), '\t', STATE, TRIGGER);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.X);
+        sm.fire(Trigger.Y);
+
+        assertEquals(State.C, sm.getState());
+        assertTrue(config.getRepresentation(State.C) == null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void MalformedEdgeTableLineIsRejected() throws IOException {
+        new StateMachineConfig<State, Trigger>().loadEdges(new StringReader("A,X,B\nB,Y\n"), ',', STATE, TRIGGER);
+    }
+
+    @Test
+    public void QuotedFieldsMayContainTheSeparatorAndQuotes() throws IOException {
+        Func2<String, String> name = new Func2<String, String>() {
+            @Override
+            public String call(String field) {
+                return field;
+            }
+        };
+        StateMachineConfig<String, String> config = new StateMachineConfig<>();
+        config.loadEdges(new StringReader("\"Idle, waiting\",start,Busy\nBusy, \"say \"\"done\"\"\" ,\"Idle, waiting\"\n"), ',', name, name);
+
+        StateMachine<String, String> sm = new StateMachine<>("Idle, waiting", config);
+        sm.fire("start");
+        assertEquals("Busy", sm.getState());
+        sm.fire("say \"done\"");
+        assertEquals("Idle, waiting", sm.getState());
+    }
+
+    @Test
+    public void MalformedQuotedFieldIsRejectedWithItsLineNumber() throws IOException {
+        for (String table : Arrays.asList("A,X,B\n\"B,Y,C\n", "A,X,B\n\"B\"x,Y,C\n", "A,X,B\nB,Y\",C\n", "A,X,B\n\"B\",\"Y\"\n")) {
+            try {
+                new StateMachineConfig<State, Trigger>().loadEdges(new StringReader(table), ',', STATE, TRIGGER);
+                fail(table);
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2 "));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void EdgesCannotBeAddedToImmutableConfiguration() {
+        new StateMachineConfig<State, Trigger>().toImmutable().addEdges(new State[0], new Trigger[0], new State[0]);
+    }
+}
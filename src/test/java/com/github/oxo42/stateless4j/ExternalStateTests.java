@@ -0,0 +1,106 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExternalStateTests {
+
+    State stored;
+    int reads;
+    final List<State> writes = new ArrayList<>();
+
+    final Func<State> accessor = new Func<State>() {
+        @Override
+        public State call() {
+            reads++;
+            return stored;
+        }
+    };
+
+    final Action1<State> mutator = new Action1<State>() {
+        @Override
+        public void doIt(State state) {
+            writes.add(state);
+            stored = state;
+        }
+    };
+
+    StateMachineConfig<State, Trigger> chainedConfig(final StateMachine<State, Trigger>[] sm) {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        sm[0].fire(Trigger.Y);
+                    }
+                })
+                .permit(Trigger.Y, State.C);
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void StateAccessorIsCalledOncePerFire() {
+        StateMachine<State, Trigger>[] sm = new StateMachine[1];
+        sm[0] = new StateMachine<>(State.A, accessor, mutator, chainedConfig(sm));
+        reads = 0;
+
+        sm[0].fire(Trigger.X);
+
+        assertEquals(1, reads);
+        assertEquals(State.C, stored);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void EveryTransitionIsWrittenByDefault() {
+        StateMachine<State, Trigger>[] sm = new StateMachine[1];
+        sm[0] = new StateMachine<>(State.A, accessor, mutator, chainedConfig(sm));
+        writes.clear();
+
+        sm[0].fire(Trigger.X);
+
+        assertEquals(2, writes.size());
+        assertEquals(State.B, writes.get(0));
+        assertEquals(State.C, writes.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void CoalescedWritesStoreOnlyTheFinalState() {
+        StateMachine<State, Trigger>[] sm = new StateMachine[1];
+        StateMachineConfig<State, Trigger> config = chainedConfig(sm);
+        config.enableStateWriteCoalescing();
+        sm[0] = new StateMachine<>(State.A, accessor, mutator, config);
+        writes.clear();
+
+        sm[0].fire(Trigger.X);
+
+        assertEquals(1, writes.size());
+        assertEquals(State.C, writes.get(0));
+    }
+
+    @Test
+    public void StateChangedOutsideAFireIsSeenByTheNextFire() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.C)
+                .permit(Trigger.X, State.A);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, accessor, mutator, config);
+
+        stored = State.C;
+        sm.fire(Trigger.X);
+
+        assertEquals(State.A, stored);
+    }
+}
@@ -3,6 +3,8 @@ package com.github.oxo42.stateless4j;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class NonEnumTests {
 
@@ -25,12 +27,35 @@ public class NonEnumTests {
         RunSimpleTest(State.values(), Trigger.values());
     }
 
+    @Test
+    public void CanUseIdentitySymbols() {
+        RunSimpleTest(
+                new String[]{StateA, StateB, StateC},
+                new String[]{TriggerX, TriggerY},
+                new StateMachineConfig<String, String>(3, true));
+    }
+
+    @Test
+    public void IdentitySymbolsDoNotMatchEqualInstances() {
+        StateMachineConfig<String, String> config = new StateMachineConfig<>(3, true);
+        config.configure(StateA)
+                .permit(TriggerX, StateB);
+
+        StateMachine<String, String> sm = new StateMachine<>(StateA, config);
+
+        assertFalse(sm.canFire(new String(TriggerX)));
+        assertTrue(sm.canFire(TriggerX));
+    }
+
     <S, T> void RunSimpleTest(S[] states, T[] transitions) {
+        RunSimpleTest(states, transitions, new StateMachineConfig<S, T>());
+    }
+
+    <S, T> void RunSimpleTest(S[] states, T[] transitions, StateMachineConfig<S, T> config) {
         S a = states[0];
         S b = states[1];
         T x = transitions[0];
 
-        StateMachineConfig<S, T> config = new StateMachineConfig<>();
         config.configure(a)
                 .permit(x, b);
 
@@ -0,0 +1,107 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import org.junit.Test;
+
+import java.util.ConcurrentModificationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OptimisticStateMachineTests {
+
+    /**
+     * Stores the state in memory, and lets another writer win the next races
+     */
+    static class Store implements VersionedStateStore<State> {
+
+        VersionedState<State> stored = new VersionedState<>(State.A, 0);
+        int racesToLose;
+        State rivalState = State.A;
+
+        @Override
+        public VersionedState<State> read() {
+            return stored;
+        }
+
+        @Override
+        public VersionedState<State> compareAndSet(long expectedVersion, State state) {
+            if (racesToLose > 0) {
+                racesToLose--;
+                stored = new VersionedState<>(rivalState, stored.getVersion() + 1);
+            }
+            if (stored.getVersion() != expectedVersion) {
+                return null;
+            }
+            stored = new VersionedState<>(state, expectedVersion + 1);
+            return stored;
+        }
+    }
+
+    final Store store = new Store();
+    int entries;
+
+    StateMachineConfig<State, Trigger> config() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        entries++;
+                    }
+                })
+                .permit(Trigger.Y, State.C);
+        config.configure(State.C)
+                .permit(Trigger.X, State.B);
+        return config;
+    }
+
+    @Test
+    public void TransitionIsStoredWithTheNextVersion() {
+        OptimisticStateMachine<State, Trigger> sm = new OptimisticStateMachine<>(store, config(), 3);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.B, store.stored.getState());
+        assertEquals(1, store.stored.getVersion());
+        assertEquals(1, sm.getVersion());
+        assertEquals(1, entries);
+    }
+
+    @Test
+    public void LostRaceIsRetriedOnTheFreshState() {
+        OptimisticStateMachine<State, Trigger> sm = new OptimisticStateMachine<>(store, config(), 3);
+        store.racesToLose = 1;
+        store.rivalState = State.C;
+
+        sm.fire(Trigger.X);
+
+        assertEquals(State.B, sm.getState());
+        assertEquals(2, store.stored.getVersion());
+        assertEquals(1, entries);
+    }
+
+    @Test
+    public void GivingUpLeavesNoSideEffects() {
+        OptimisticStateMachine<State, Trigger> sm = new OptimisticStateMachine<>(store, config(), 2);
+        store.racesToLose = 2;
+        try {
+            sm.fire(Trigger.X);
+            fail();
+        } catch (ConcurrentModificationException e) {
+            assertEquals(0, entries);
+            assertEquals(State.A, store.stored.getState());
+        }
+    }
+
+    @Test
+    public void StateIsReadFromTheStore() {
+        OptimisticStateMachine<State, Trigger> sm = new OptimisticStateMachine<>(store, config(), 1);
+        store.stored = new VersionedState<>(State.C, 5);
+
+        assertEquals(State.C, sm.getState());
+        sm.fire(Trigger.X);
+        assertEquals(6, sm.getVersion());
+    }
+}
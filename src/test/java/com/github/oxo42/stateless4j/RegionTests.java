@@ -0,0 +1,308 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+import com.github.oxo42.stateless4j.timers.Clock;
+import com.github.oxo42.stateless4j.timers.TimerWheel;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RegionTests {
+
+    enum Device {
+        Off, On, PowerLow, PowerHigh, Offline, Online
+    }
+
+    enum Signal {
+        SwitchOn, SwitchOff, Boost, Connect, Disconnect, Toggle
+    }
+
+    final List<String> actions = Collections.synchronizedList(new ArrayList<String>());
+
+    Action record(final String name) {
+        return new Action() {
+            @Override
+            public void doIt() {
+                actions.add(name);
+            }
+        };
+    }
+
+    StateMachineConfig<Device, Signal> config() {
+        StateMachineConfig<Device, Signal> config = new StateMachineConfig<>();
+        config.configure(Device.Off)
+                .permit(Signal.SwitchOn, Device.On);
+        config.configure(Device.On)
+                .region(Device.PowerLow)
+                .region(Device.Offline)
+                .onEntry(record("enter On"))
+                .onExit(record("exit On"))
+                .permit(Signal.SwitchOff, Device.Off);
+        config.configure(Device.PowerLow)
+                .onEntry(record("enter PowerLow"))
+                .permit(Signal.Boost, Device.PowerHigh)
+                .permit(Signal.Toggle, Device.PowerHigh);
+        config.configure(Device.PowerHigh)
+                .onExit(record("exit PowerHigh"))
+                .permit(Signal.Toggle, Device.PowerLow);
+        config.configure(Device.Offline)
+                .onEntry(record("enter Offline"))
+                .permit(Signal.Connect, Device.Online)
+                .permit(Signal.Toggle, Device.Online);
+        config.configure(Device.Online)
+                .onExit(record("exit Online"))
+                .permit(Signal.Disconnect, Device.Offline)
+                .permit(Signal.Toggle, Device.Offline);
+        return config;
+    }
+
+    @Test
+    public void EnteringCompositeStateEntersRegions() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.Off, config());
+        sm.fire(Signal.SwitchOn);
+
+        assertEquals(Device.On, sm.getState());
+        assertEquals(Device.PowerLow, sm.getRegionStates().get(0));
+        assertEquals(Device.Offline, sm.getRegionStates().get(1));
+        assertEquals(3, actions.size());
+        assertEquals("enter On", actions.get(0));
+        assertTrue(actions.contains("enter PowerLow"));
+        assertTrue(actions.contains("enter Offline"));
+    }
+
+    @Test
+    public void TriggerIsDispatchedToTheRegionThatHandlesIt() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        sm.fire(Signal.Connect);
+
+        assertEquals(Device.On, sm.getState());
+        assertEquals(Device.PowerLow, sm.getRegionStates().get(0));
+        assertEquals(Device.Online, sm.getRegionStates().get(1));
+    }
+
+    @Test
+    public void TriggerIsDispatchedToAllRegionsThatHandleIt() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        sm.fire(Signal.Toggle);
+
+        assertEquals(Device.PowerHigh, sm.getRegionStates().get(0));
+        assertEquals(Device.Online, sm.getRegionStates().get(1));
+    }
+
+    @Test
+    public void IsInStateAnswersAcrossRegions() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        sm.fire(Signal.Boost);
+
+        assertTrue(sm.isInState(Device.On));
+        assertTrue(sm.isInState(Device.PowerHigh));
+        assertTrue(sm.isInState(Device.Offline));
+        assertFalse(sm.isInState(Device.PowerLow));
+    }
+
+    @Test
+    public void PermittedTriggersIncludeRegionTriggers() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        List<Signal> permitted = sm.getPermittedTriggers();
+
+        assertEquals(4, permitted.size());
+        assertTrue(permitted.contains(Signal.SwitchOff));
+        assertTrue(permitted.contains(Signal.Boost));
+        assertTrue(permitted.contains(Signal.Connect));
+        assertTrue(permitted.contains(Signal.Toggle));
+        assertTrue(sm.canFire(Signal.Connect));
+        assertEquals(1L << Signal.SwitchOff.ordinal() | 1L << Signal.Boost.ordinal()
+                | 1L << Signal.Connect.ordinal() | 1L << Signal.Toggle.ordinal(), sm.getPermittedTriggerMask());
+    }
+
+    @Test
+    public void LeavingCompositeStateExitsRegionsFirst() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        sm.fire(Signal.Toggle);
+        actions.clear();
+
+        sm.fire(Signal.SwitchOff);
+
+        assertEquals(Device.Off, sm.getState());
+        assertTrue(sm.getRegionStates().isEmpty());
+        assertFalse(sm.isInState(Device.PowerHigh));
+        assertEquals(3, actions.size());
+        assertEquals("exit PowerHigh", actions.get(0));
+        assertEquals("exit Online", actions.get(1));
+        assertEquals("exit On", actions.get(2));
+    }
+
+    @Test
+    public void ReenteringCompositeStateRestartsRegions() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config());
+        sm.fire(Signal.Toggle);
+        sm.fire(Signal.SwitchOff);
+        sm.fire(Signal.SwitchOn);
+
+        assertEquals(Device.PowerLow, sm.getRegionStates().get(0));
+        assertEquals(Device.Offline, sm.getRegionStates().get(1));
+    }
+
+    @Test
+    public void RegionsCanBeFiredInParallel() {
+        StateMachineConfig<Device, Signal> config = config();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        config.enableParallelRegions(pool);
+        try {
+            StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config);
+            for (int i = 0; i < 101; i++) {
+                sm.fire(Signal.Toggle);
+            }
+
+            assertEquals(Device.PowerHigh, sm.getRegionStates().get(0));
+            assertEquals(Device.Online, sm.getRegionStates().get(1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void RegionTimeoutExpiringDuringAFireIsFiredOnceTheFireCompletes() {
+        final long[] now = new long[1];
+        final TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, new Clock() {
+            @Override
+            public long nanoTime() {
+                return now[0];
+            }
+        });
+        final List<String> events = new ArrayList<>();
+        StateMachineConfig<Device, Signal> config = new StateMachineConfig<>();
+        config.configure(Device.On)
+                .region(Device.PowerLow)
+                .region(Device.Online);
+        config.configure(Device.PowerLow)
+                .permit(Signal.Toggle, Device.PowerHigh);
+        config.configure(Device.PowerHigh)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        now[0] = TimeUnit.SECONDS.toNanos(10);
+                        wheel.advance();
+                        events.add("PowerHigh entered");
+                    }
+                });
+        config.configure(Device.Online)
+                .permitAfter(Signal.Disconnect, Device.Offline, 10, TimeUnit.SECONDS);
+        config.configure(Device.Offline)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        events.add("Offline entered");
+                    }
+                });
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config);
+        sm.useTimerWheel(wheel);
+
+        sm.fire(Signal.Toggle);
+
+        assertEquals(Arrays.asList("PowerHigh entered", "Offline entered"), events);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void ParallelRegionsShareTimersListenersAndObserversSafely() {
+        final AtomicInteger guardCalls = new AtomicInteger();
+        FuncBoolean countedGuard = new FuncBoolean() {
+            @Override
+            public boolean call() {
+                guardCalls.incrementAndGet();
+                return true;
+            }
+        };
+        StateMachineConfig<Device, Signal> config = new StateMachineConfig<>();
+        config.configure(Device.On)
+                .region(Device.PowerLow)
+                .region(Device.Offline);
+        config.configure(Device.PowerLow)
+                .permitIf(Signal.Toggle, Device.PowerHigh, countedGuard);
+        config.configure(Device.PowerHigh)
+                .permit(Signal.Toggle, Device.PowerLow)
+                .permitAfter(Signal.Boost, Device.PowerLow, 10, TimeUnit.SECONDS);
+        config.configure(Device.Offline)
+                .permitIf(Signal.Toggle, Device.Online, countedGuard);
+        config.configure(Device.Online)
+                .permit(Signal.Toggle, Device.Offline)
+                .permitAfter(Signal.Disconnect, Device.Offline, 10, TimeUnit.SECONDS);
+        final int[] listened = new int[1];
+        final int[] observed = new int[1];
+        config.addTransitionObserver(null, Signal.Toggle, null, new Action1<Transition<Device, Signal>>() {
+            @Override
+            public void doIt(Transition<Device, Signal> transition) {
+                observed[0]++;
+            }
+        });
+        final long[] now = new long[1];
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, new Clock() {
+            @Override
+            public long nanoTime() {
+                return now[0];
+            }
+        });
+        ForkJoinPool pool = new ForkJoinPool(2);
+        config.enableParallelRegions(pool);
+        try {
+            StateMachine<Device, Signal> sm = new StateMachine<>(Device.On, config);
+            sm.useTimerWheel(wheel);
+            sm.onTransitioned(new Action1<Transition<Device, Signal>>() {
+                @Override
+                public void doIt(Transition<Device, Signal> transition) {
+                    listened[0]++;
+                }
+            });
+            for (int i = 0; i < 1000; i++) {
+                sm.fire(Signal.Toggle);
+                assertEquals(i % 2 == 0 ? 2 : 0, wheel.size());
+            }
+            sm.fire(Signal.Toggle);
+            now[0] = TimeUnit.SECONDS.toNanos(10);
+            wheel.advance();
+
+            assertEquals(1002, guardCalls.get()); // once per region each time it is fired in its low state
+            assertEquals(2004, listened[0]);
+            assertEquals(2002, observed[0]);
+            assertEquals(0, wheel.size());
+            assertEquals(Device.PowerLow, sm.getRegionStates().get(0));
+            assertEquals(Device.Offline, sm.getRegionStates().get(1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void ResetStopsRegionsSilentlyAndStartsThoseOfTheInitialState() {
+        StateMachine<Device, Signal> sm = new StateMachine<>(Device.Off, config());
+        sm.fire(Signal.SwitchOn);
+        sm.fire(Signal.Connect);
+        actions.clear();
+
+        sm.reset(Device.On);
+
+        assertEquals(Device.On, sm.getState());
+        assertEquals(Device.PowerLow, sm.getRegionStates().get(0));
+        assertEquals(Device.Offline, sm.getRegionStates().get(1));
+        assertEquals(0, sm.getTransitionCount());
+        assertTrue(actions.isEmpty());
+
+        sm.reset(Device.Off);
+
+        assertTrue(sm.getRegionStates().isEmpty());
+        sm.fire(Signal.SwitchOn);
+        assertEquals(1, sm.getTransitionCount());
+    }
+}
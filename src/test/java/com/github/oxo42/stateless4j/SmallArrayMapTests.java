@@ -0,0 +1,80 @@
+package com.github.oxo42.stateless4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class SmallArrayMapTests {
+
+    @Test
+    public void PutOfExistingKeyReplacesItsValue() {
+        SmallArrayMap<String, Integer> map = new SmallArrayMap<>(false);
+        assertNull(map.put("a", 1));
+        assertNull(map.put("b", 2));
+
+        assertEquals(Integer.valueOf(1), map.put("a", 3));
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(3), map.get("a"));
+        assertEquals(Integer.valueOf(2), map.get("b"));
+    }
+
+    @Test
+    public void KeysAreComparedWithEqualsByDefault() {
+        SmallArrayMap<String, Integer> map = new SmallArrayMap<>(false);
+        map.put(new String("a"), 1);
+
+        assertTrue(map.containsKey(new String("a")));
+        assertEquals(Integer.valueOf(1), map.get(new String("a")));
+        assertNull(map.get("b"));
+    }
+
+    @Test
+    public void KeysAreComparedByIdentityInIdentityMode() {
+        SmallArrayMap<String, Integer> map = new SmallArrayMap<>(true);
+        String key = new String("a");
+        map.put(key, 1);
+        map.put(new String("a"), 2);
+
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(1), map.get(key));
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test
+    public void EntrySetIteratesInInsertionOrder() {
+        SmallArrayMap<String, Integer> map = new SmallArrayMap<>(false);
+        map.put("c", 3);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("a", 4);
+
+        List<String> entries = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entries.add(entry.getKey() + "=" + entry.getValue());
+        }
+        assertEquals("[c=3, a=4, b=2]", entries.toString());
+        assertEquals(3, map.entrySet().size());
+    }
+
+    @Test
+    public void EntrySetIteratorIsExhaustedAfterTheLastEntry() {
+        SmallArrayMap<String, Integer> map = new SmallArrayMap<>(false);
+        map.put("a", 1);
+        Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        iterator.next();
+
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StateMachineConfigTests {
+
+    @Test
+    public void ValidConfigurationPassesValidation() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .permitIf(Trigger.Y, State.B, IgnoredTriggerBehaviourTests.RETURN_TRUE)
+                .permitIf(Trigger.Y, State.C, IgnoredTriggerBehaviourTests.RETURN_FALSE);
+        config.configure(State.B)
+                .ignore(Trigger.X)
+                .permitReentry(Trigger.Y);
+
+        config.validate();
+    }
+
+    @Test
+    public void DuplicatePermitFailsValidation() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .permit(Trigger.X, State.B);
+
+        try {
+            config.validate();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("more than once"));
+        }
+    }
+
+    @Test
+    public void UnguardedBehaviourOverlappingAnotherFailsValidation() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.RETURN_FALSE);
+        config.configure(State.B)
+                .ignore(Trigger.Y)
+                .permit(Trigger.Y, State.C);
+
+        try {
+            config.validate();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("'X'"));
+            assertTrue(e.getMessage().contains("'Y'"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void OverlappingGuardsFailWhenFiredByDefault() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.RETURN_TRUE)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.RETURN_TRUE);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.X);
+    }
+
+    @Test
+    public void FirstMatchGuardEvaluationTakesFirstPassingGuard() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.RETURN_FALSE)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.RETURN_TRUE)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.RETURN_TRUE);
+        config.enableFirstMatchGuardEvaluation();
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.X);
+
+        assertEquals(State.C, sm.getState());
+    }
+
+    @Test
+    public void CanFireAgreesWithFireUnderFirstMatchGuardEvaluation() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.RETURN_TRUE)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.RETURN_TRUE);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        try {
+            sm.canFire(Trigger.X);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("mutually exclusive"));
+        }
+
+        config.enableFirstMatchGuardEvaluation();
+
+        assertTrue(sm.canFire(Trigger.X));
+        assertEquals(Arrays.asList(Trigger.X), sm.getPermittedTriggers());
+        sm.fire(Trigger.X);
+        assertEquals(State.B, sm.getState());
+        assertFalse(sm.canFire(Trigger.X));
+    }
+
+    @Test
+    public void ImmutableConfigurationDrivesStateMachines() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .substateOf(State.C)
+                .permit(Trigger.Y, State.A);
+        config.configure(State.C)
+                .permit(Trigger.Z, State.A);
+
+        StateMachineConfig<State, Trigger> immutable = config.toImmutable();
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, immutable);
+        sm.fire(Trigger.X);
+
+        assertFalse(immutable.isMutable());
+        assertSame(immutable, immutable.toImmutable());
+        assertTrue(sm.isInState(State.C));
+        sm.fire(Trigger.Z);
+        assertEquals(State.A, sm.getState());
+    }
+
+    @Test
+    public void LaterChangesDoNotReachImmutableConfiguration() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        StateMachineConfig<State, Trigger> immutable = config.toImmutable();
+
+        config.configure(State.A)
+                .permit(Trigger.Y, State.C);
+        config.enableFirstMatchGuardEvaluation();
+
+        assertFalse(new StateMachine<>(State.A, immutable).canFire(Trigger.Y));
+        assertFalse(immutable.isFirstMatchGuardEvaluationEnabled());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ImmutableConfigurationCannotBeConfigured() {
+        new StateMachineConfig<State, Trigger>().toImmutable().configure(State.A);
+    }
+
+    @Test
+    public void TransitionObserversAreCalledForMatchingTransitionsOnly() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .permit(Trigger.Y, State.C);
+        config.configure(State.B)
+                .permit(Trigger.X, State.A)
+                .permitReentry(Trigger.Y);
+        List<String> observed = new ArrayList<>();
+        config.addTransitionObserver(null, null, null, record(observed, "any"));
+        config.addTransitionObserver(null, null, State.B, record(observed, "to B"));
+        config.addTransitionObserver(null, Trigger.Y, null, record(observed, "on Y"));
+        config.addTransitionObserver(State.A, null, null, record(observed, "from A"));
+        config.addTransitionObserver(State.A, Trigger.X, State.B, record(observed, "A X B"));
+        config.addTransitionObserver(State.B, Trigger.Y, State.B, record(observed, "B Y B"));
+        config.addTransitionObserver(State.C, null, null, record(observed, "from C"));
+
+        for (StateMachineConfig<State, Trigger> c : Arrays.asList(config, config.toImmutable())) {
+            observed.clear();
+            StateMachine<State, Trigger> sm = new StateMachine<>(State.A, c);
+            sm.fire(Trigger.X);
+            sm.fire(Trigger.Y);
+            sm.fire(Trigger.X);
+            sm.fire(Trigger.Y);
+
+            assertEquals(Arrays.asList(
+                    "A X B", "from A", "to B", "any",
+                    "B Y B", "on Y", "to B", "any",
+                    "any",
+                    "from A", "on Y", "any"), observed);
+        }
+    }
+
+    @Test
+    public void ObserversAddedAfterFiringAreIndexed() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.X, State.A);
+        List<String> observed = new ArrayList<>();
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(Trigger.X);
+
+        config.addTransitionObserver(State.B, Trigger.X, null, record(observed, "from B"));
+        sm.fire(Trigger.X);
+        sm.fire(Trigger.X);
+
+        assertEquals(Arrays.asList("from B"), observed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ImmutableConfigurationCannotBeObserved() {
+        new StateMachineConfig<State, Trigger>().toImmutable().addTransitionObserver(State.A, null, null, record(new ArrayList<String>(), ""));
+    }
+
+    private static Action1<Transition<State, Trigger>> record(final List<String> observed, final String name) {
+        return new Action1<Transition<State, Trigger>>() {
+            @Override
+            public void doIt(Transition<State, Trigger> transition) {
+                observed.add(name);
+            }
+        };
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ImmutableRepresentationsCannotBeChanged() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+
+        config.toImmutable().getRepresentation(State.A).addSubstate(new StateRepresentation<State, Trigger>(State.C));
+    }
+
+    @Test
+    public void StatesWithManyTriggersDispatchEachTrigger() {
+        StateMachineConfig<Integer, Integer> config = new StateMachineConfig<>();
+        config.configure(100)
+                .permit(-1, 0);
+        for (int trigger = 19; trigger >= 0; trigger--) {
+            config.configure(0)
+                    .permit(trigger, trigger + 1);
+        }
+        config.configure(0)
+                .permit(-1, 100);
+        List<StateMachineConfig<Integer, Integer>> configs = Arrays.asList(config, config.toImmutable());
+        for (StateMachineConfig<Integer, Integer> c : configs) {
+            for (int trigger = -1; trigger < 20; trigger++) {
+                StateMachine<Integer, Integer> sm = new StateMachine<>(0, c);
+                assertTrue(sm.canFire(-1));
+                sm.fire(trigger);
+                assertEquals(trigger < 0 ? 100 : trigger + 1, (int) sm.getState());
+            }
+        }
+    }
+}
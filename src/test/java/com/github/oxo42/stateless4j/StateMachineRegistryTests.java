@@ -0,0 +1,146 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.timers.Clock;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StateMachineRegistryTests {
+
+    static class Store implements PassivationStore<Integer, State> {
+
+        final Map<Integer, State> saved = new HashMap<>();
+
+        @Override
+        public State load(Integer key) {
+            return saved.get(key);
+        }
+
+        @Override
+        public void save(Integer key, State state) {
+            saved.put(key, state);
+        }
+    }
+
+    final Store store = new Store();
+    long now;
+    final Clock clock = new Clock() {
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    };
+
+    StateMachineRegistry<Integer, State, Trigger> registry(int maxSize) {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.X, State.C);
+        config.configure(State.C)
+                .permit(Trigger.X, State.A);
+        return new StateMachineRegistry<>(config, State.A, store, maxSize, 1, TimeUnit.MINUTES, clock);
+    }
+
+    @Test
+    public void EachKeyHasItsOwnMachine() {
+        StateMachineRegistry<Integer, State, Trigger> registry = registry(10);
+        registry.fire(1, Trigger.X);
+        registry.fire(1, Trigger.X);
+        registry.fire(2, Trigger.X);
+
+        assertEquals(State.C, registry.getState(1));
+        assertEquals(State.B, registry.getState(2));
+        assertEquals(State.A, registry.getState(3));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void EvictedMachineIsRehydratedOnNextFire() {
+        StateMachineRegistry<Integer, State, Trigger> registry = registry(2);
+        for (int key = 0; key < 3; key++) {
+            registry.fire(key, Trigger.X);
+        }
+
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getEvictionCount());
+        assertEquals(1, store.saved.size());
+        int evicted = store.saved.keySet().iterator().next();
+        assertEquals(State.B, store.saved.get(evicted));
+        assertEquals(State.B, registry.getState(evicted));
+
+        registry.fire(evicted, Trigger.X);
+
+        assertEquals(State.C, registry.getState(evicted));
+        assertEquals(1, registry.getRehydrationCount());
+        assertTrue(registry.size() <= 2);
+    }
+
+    @Test
+    public void RehydratedMachineDoesNotEnterItsStateAgain() {
+        final int[] entries = new int[1];
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.enableEntryActionOfInitialState();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        entries[0]++;
+                    }
+                })
+                .permit(Trigger.X, State.C);
+        config.configure(State.C)
+                .permit(Trigger.X, State.A);
+        StateMachineRegistry<Integer, State, Trigger> registry = new StateMachineRegistry<>(config, State.A, store, 2, 1, TimeUnit.MINUTES, clock);
+        for (int key = 0; key < 3; key++) {
+            registry.fire(key, Trigger.X);
+        }
+        assertEquals(3, entries[0]);
+
+        int evicted = store.saved.keySet().iterator().next();
+        registry.fire(evicted, Trigger.X);
+
+        assertEquals(State.C, registry.getState(evicted));
+        assertEquals(1, registry.getRehydrationCount());
+        assertEquals(3, entries[0]);
+    }
+
+    @Test
+    public void FrequentlyFiredMachineStaysResident() {
+        StateMachineRegistry<Integer, State, Trigger> registry = registry(4);
+        for (int key = 1; key < 100; key++) {
+            registry.fire(0, Trigger.X);
+            registry.fire(key, Trigger.X);
+        }
+
+        assertTrue(registry.size() <= 4);
+        assertTrue(registry.getEvictionCount() >= 95);
+        assertEquals(null, store.saved.get(0));
+    }
+
+    @Test
+    public void IdleMachinesAreEvicted() {
+        StateMachineRegistry<Integer, State, Trigger> registry = registry(10);
+        registry.fire(1, Trigger.X);
+        now = TimeUnit.SECONDS.toNanos(30);
+        registry.fire(2, Trigger.X);
+        now = TimeUnit.SECONDS.toNanos(61);
+
+        assertEquals(1, registry.evictIdle());
+        assertEquals(1, registry.size());
+        assertEquals(State.B, store.saved.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void MaximumSizeMustBePositive() {
+        registry(0);
+    }
+}
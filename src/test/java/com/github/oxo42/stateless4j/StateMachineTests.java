@@ -1,9 +1,17 @@
 package com.github.oxo42.stateless4j;
 
 import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func3;
 import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -137,6 +145,38 @@ public class StateMachineTests {
         assertEquals(0, sm.getPermittedTriggers().size());
     }
 
+    @Test
+    public void PermittedTriggerMaskMatchesPermittedTriggers() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+
+        config.configure(State.B)
+                .substateOf(State.C)
+                .permitIf(Trigger.X, State.A, IgnoredTriggerBehaviourTests.RETURN_FALSE)
+                .ignore(Trigger.Z);
+
+        config.configure(State.C)
+                .permit(Trigger.Y, State.A);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.B, config.toImmutable());
+
+        assertEquals(1L << Trigger.Y.ordinal() | 1L << Trigger.Z.ordinal(), sm.getPermittedTriggerMask());
+        BitSet permitted = new BitSet();
+        permitted.set(Trigger.X.ordinal());
+        assertSame(permitted, sm.getPermittedTriggers(permitted));
+        assertEquals(2, permitted.cardinality());
+        assertTrue(permitted.get(Trigger.Y.ordinal()));
+        assertTrue(permitted.get(Trigger.Z.ordinal()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void PermittedTriggerMaskRequiresEnumTriggers() {
+        StateMachineConfig<State, String> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit("x", State.B);
+
+        new StateMachine<>(State.A, config).getPermittedTriggerMask();
+    }
+
     @Test
     public void WhenDiscriminatedByGuard_ChoosesPermitedTransition() {
         StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
@@ -219,6 +259,124 @@ public class StateMachineTests {
         config.setTriggerParameters(Trigger.X, String.class);
     }
 
+    @Test
+    public void UnconfiguredStateRepresentationIsReused() {
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.C);
+
+        assertSame(sm.getCurrentRepresentation(), sm.getCurrentRepresentation());
+        assertFalse(sm.canFire(Trigger.X));
+    }
+
+    @Test
+    public void StatesAndTriggersConfiguredAfterFiringAreSeen() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.onUnhandledTrigger(new Action2<State, Trigger>() {
+            @Override
+            public void doIt(State state, Trigger trigger) {
+            }
+        });
+        sm.fire(Trigger.X);
+
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        sm.fire(Trigger.X);
+        assertEquals(State.B, sm.getState());
+
+        config.setTriggerParameters(Trigger.Y, String.class);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C);
+        try {
+            sm.fire(Trigger.Y);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(State.B, sm.getState());
+        }
+    }
+
+
+    @Test
+    public void TypedFireReachesTypedAndArrayDelegates() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        TriggerWithParameters2<String, Integer, State, Trigger> x = config.setTriggerParameters(Trigger.X, String.class, Integer.class);
+        config.configure(State.A)
+                .permitDynamicIf(x, new Func3<String, Integer, State>() {
+                    @Override
+                    public State call(String s, Integer i) {
+                        return i > 0 ? State.B : State.C;
+                    }
+                }, new Func3<String, Integer, Boolean>() {
+                    @Override
+                    public Boolean call(String s, Integer i) {
+                        return s.equals("go");
+                    }
+                });
+        config.configure(State.B)
+                .onEntryFrom(x, new Action2<String, Integer>() {
+                    @Override
+                    public void doIt(String s, Integer i) {
+                        entryArgS = s;
+                        entryArgI = i;
+                    }
+                }, String.class, Integer.class);
+        final Object[][] arrayArgs = new Object[1][];
+        config.getRepresentation(State.B).addEntryAction(new Action2<Transition<State, Trigger>, Object[]>() {
+            @Override
+            public void doIt(Transition<State, Trigger> transition, Object[] args) {
+                arrayArgs[0] = args;
+            }
+        });
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.fire(x, "go", 3);
+
+        assertEquals(State.B, sm.getState());
+        assertEquals("go", entryArgS);
+        assertEquals(3, entryArgI);
+        assertArrayEquals(new Object[]{"go", 3}, arrayArgs[0]);
+    }
+
+    @Test
+    public void TypedFireIsValidatedAgainstConfiguredParameters() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Trigger.X, String.class, Integer.class);
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        try {
+            sm.fire(new TriggerWithParameters1<String, State, Trigger>(Trigger.X, String.class), "a");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(State.A, sm.getState());
+        }
+    }
+
+    @Test
+    public void OverriddenPublicFireSeesUntypedAndTypedFires() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, State, Trigger> y = config.setTriggerParameters(Trigger.Y, String.class);
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.A);
+
+        final List<String> fires = new ArrayList<>();
+        StateMachine<State, Trigger> sm = new StateMachine<State, Trigger>(State.A, config) {
+            @Override
+            protected void publicFire(Trigger trigger, int count, Object arg0, Object arg1, Object arg2, Object[] args) {
+                fires.add(trigger + "/" + count);
+                super.publicFire(trigger, count, arg0, arg1, arg2, args);
+            }
+        };
+        sm.fire(Trigger.X);
+        sm.fire(y, "back");
+        sm.fire(Trigger.X);
+
+        assertEquals(State.B, sm.getState());
+        assertEquals(Arrays.asList("X/0", "Y/1", "X/0"), fires);
+    }
+
 //        @Test
 //        public void ParametersSuppliedToFireArePassedToEntryAction()
 //        {
@@ -1,5 +1,6 @@
 package com.github.oxo42.stateless4j;
 
+import com.github.oxo42.stateless4j.delegates.Action;
 import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Action2;
 import com.github.oxo42.stateless4j.transitions.Transition;
@@ -397,6 +398,22 @@ public class StateRepresentationTests {
         assertTrue(subOrder < superOrder);
     }
 
+    @Test
+    public void EntryActionFromTriggerOnlyRunsForThatTrigger() {
+        StateRepresentation<State, Trigger> rep = CreateRepresentation(State.B);
+        rep.addEntryAction(Trigger.Y, new Action() {
+
+            @Override
+            public void doIt() {
+                executed = true;
+            }
+        });
+        rep.enter(new Transition<>(State.A, State.B, Trigger.X));
+        assertFalse(executed);
+        rep.enter(new Transition<>(State.A, State.B, Trigger.Y));
+        assertTrue(executed);
+    }
+
     private static StateRepresentation<State, Trigger> CreateRepresentation(State state) {
         return new StateRepresentation<>(state);
     }
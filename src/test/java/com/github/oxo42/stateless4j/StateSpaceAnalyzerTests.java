@@ -0,0 +1,142 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StateSpaceAnalyzerTests {
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+
+    final FuncBoolean never = new FuncBoolean() {
+        @Override
+        public boolean call() {
+            return false;
+        }
+    };
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void ReportsUnreachableAndSinkStatesAndUnhandledTriggers() {
+        StateMachineConfig<String, String> config = new StateMachineConfig<>();
+        config.configure("A")
+                .permit("X", "B");
+        config.configure("B")
+                .permit("Y", "C")
+                .permitReentry("X");
+        config.configure("C")
+                .ignore("X");
+        config.configure("D")
+                .permit("W", "A");
+
+        StateSpaceAnalyzer<String, String> analyzer = new StateSpaceAnalyzer<>(config);
+        analyzer.addTriggers(Collections.singleton("V"));
+        StateSpaceReport<String, String> report = analyzer.analyze("A", pool);
+
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), report.getReachableStates());
+        assertEquals(Collections.singleton("D"), report.getUnreachableStates());
+        assertEquals(Collections.singleton("C"), report.getSinkStates());
+        assertEquals(new HashSet<>(Arrays.asList("V", "W")), report.getNeverPermittedTriggers());
+        assertEquals(new HashSet<>(Arrays.asList("V", "W", "Y")), report.getUnhandledTriggers().get("A"));
+        assertEquals(new HashSet<>(Arrays.asList("V", "W", "Y")), report.getUnhandledTriggers().get("C"));
+    }
+
+    @Test
+    public void GuardsAreNondeterministicUnlessValued() {
+        StateMachineConfig<String, String> config = new StateMachineConfig<>();
+        config.configure("A")
+                .permitIf("X", "B", never)
+                .permit("Y", "C");
+        config.configure("B");
+        config.configure("C");
+        StateSpaceAnalyzer<String, String> analyzer = new StateSpaceAnalyzer<>(config);
+
+        assertTrue(analyzer.analyze("A", pool).getReachableStates().contains("B"));
+
+        analyzer.setGuardValuation(new Func3<String, TriggerBehaviour<String, String>, Boolean>() {
+            @Override
+            public Boolean call(String state, TriggerBehaviour<String, String> behaviour) {
+                return behaviour.isGuardConditionMet();
+            }
+        });
+        StateSpaceReport<String, String> report = analyzer.analyze("A", pool);
+
+        assertEquals(Collections.singleton("B"), report.getUnreachableStates());
+        assertEquals(Collections.singleton("X"), report.getUnhandledTriggers().get("A"));
+    }
+
+    @Test
+    public void SuperstateTransitionsApplyToSubstates() {
+        StateMachineConfig<String, String> config = new StateMachineConfig<>();
+        config.configure("P")
+                .permit("X", "Q");
+        config.configure("S")
+                .substateOf("P")
+                .permitIf("X", "R", never);
+        config.configure("Q");
+        config.configure("R");
+
+        StateSpaceReport<String, String> report = new StateSpaceAnalyzer<>(config).analyze("S", pool);
+
+        assertEquals(new HashSet<>(Arrays.asList("P", "Q", "R", "S")), report.getReachableStates());
+        assertEquals(new HashSet<>(Arrays.asList("Q", "R")), report.getSinkStates());
+    }
+
+    @Test
+    public void DynamicTransitionsAreReported() {
+        StateMachineConfig<String, String> config = new StateMachineConfig<>();
+        config.configure("A")
+                .permitDynamic("X", new Func<String>() {
+                    @Override
+                    public String call() {
+                        return "B";
+                    }
+                });
+        config.configure("B");
+
+        StateSpaceReport<String, String> report = new StateSpaceAnalyzer<>(config).analyze("A", pool);
+
+        assertEquals(Collections.singleton("A"), report.getStatesWithDynamicTransitions());
+        assertEquals(Collections.singleton("B"), report.getUnreachableStates());
+        assertTrue(report.getSinkStates().isEmpty());
+    }
+
+    @Test
+    public void ExploresLargeConfigurations() {
+        int count = 100000;
+        StateMachineConfig<Integer, String> config = new StateMachineConfig<>(count);
+        for (int i = 0; i < count; i++) {
+            StateConfiguration<Integer, String> state = config.configure(i);
+            if (2 * i + 1 < count) {
+                state.permit("left", 2 * i + 1);
+            }
+            if (2 * i + 2 < count) {
+                state.permit("right", 2 * i + 2);
+            }
+        }
+        config.configure(-1)
+                .permit("left", 0);
+
+        StateSpaceReport<Integer, String> report = new StateSpaceAnalyzer<>(config).analyze(0, pool);
+
+        assertEquals(count, report.getReachableStates().size());
+        assertEquals(Collections.singleton(-1), report.getUnreachableStates());
+        assertEquals(count / 2, report.getSinkStates().size());
+        assertEquals(count / 2 + 1, report.getUnhandledTriggers().size());
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.oxo42.stateless4j;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SymbolTableTests {
+
+    @Test
+    public void IdsAreDenseInOrderOfFirstAppearance() {
+        SymbolTable<String> symbols = new SymbolTable<>();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, symbols.intern("symbol" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, symbols.intern("symbol" + i));
+            assertEquals(i, symbols.indexOf("symbol" + i));
+            assertEquals("symbol" + i, symbols.get(i));
+        }
+        assertEquals(1000, symbols.size());
+        assertEquals(-1, symbols.indexOf("unknown"));
+    }
+
+    @Test
+    public void IdentityTableTellsEqualInstancesApart() {
+        SymbolTable<String> symbols = new SymbolTable<>(true);
+        String first = "symbol";
+        String second = new String(first);
+
+        assertEquals(0, symbols.intern(first));
+        assertEquals(1, symbols.intern(second));
+        assertSame(second, symbols.get(1));
+    }
+
+    @Test
+    public void CopyIsIndependent() {
+        SymbolTable<String> symbols = new SymbolTable<>();
+        symbols.intern("a");
+        SymbolTable<String> copy = symbols.copy();
+        symbols.intern("b");
+
+        assertEquals(0, copy.indexOf("a"));
+        assertEquals(-1, copy.indexOf("b"));
+        assertEquals(1, copy.intern("c"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void UnknownIdIsRejected() {
+        new SymbolTable<String>().get(0);
+    }
+}
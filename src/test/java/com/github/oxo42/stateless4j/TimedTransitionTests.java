@@ -0,0 +1,115 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.timers.Clock;
+import com.github.oxo42.stateless4j.timers.TimerWheel;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimedTransitionTests {
+
+    long now = 0;
+
+    final Clock clock = new Clock() {
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    };
+
+    void advanceSeconds(TimerWheel wheel, long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+        wheel.advance();
+    }
+
+    @Test
+    public void TimeoutFiresWhenStateIsOccupiedLongEnough() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permitAfter(Trigger.Z, State.C, 30, TimeUnit.SECONDS);
+
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.useTimerWheel(wheel);
+
+        sm.fire(Trigger.X);
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(wheel, 29);
+        assertEquals(State.B, sm.getState());
+
+        advanceSeconds(wheel, 1);
+        assertEquals(State.C, sm.getState());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void TimeoutIsCancelledWhenStateIsExited() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitAfter(Trigger.Z, State.C, 30, TimeUnit.SECONDS)
+                .permit(Trigger.X, State.B);
+
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.useTimerWheel(wheel);
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(wheel, 10);
+        sm.fire(Trigger.X);
+        assertEquals(0, wheel.size());
+
+        advanceSeconds(wheel, 60);
+        assertEquals(State.B, sm.getState());
+    }
+
+    @Test
+    public void SuperstateTimeoutKeepsRunningWhileMovingBetweenSubstates() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.C)
+                .permitAfter(Trigger.Z, State.A, 30, TimeUnit.SECONDS);
+        config.configure(State.A)
+                .substateOf(State.C)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .substateOf(State.C)
+                .permit(Trigger.X, State.A);
+
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.B, config);
+        sm.useTimerWheel(wheel);
+
+        advanceSeconds(wheel, 20);
+        sm.fire(Trigger.X);
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(wheel, 10);
+        assertEquals(State.A, sm.getState());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void ReentryRestartsTimeout() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitAfter(Trigger.Z, State.B, 30, TimeUnit.SECONDS)
+                .permitReentry(Trigger.X);
+
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.SECONDS, clock);
+        StateMachine<State, Trigger> sm = new StateMachine<>(State.A, config);
+        sm.useTimerWheel(wheel);
+
+        advanceSeconds(wheel, 20);
+        sm.fire(Trigger.X);
+
+        advanceSeconds(wheel, 20);
+        assertEquals(State.A, sm.getState());
+
+        advanceSeconds(wheel, 10);
+        assertEquals(State.B, sm.getState());
+    }
+}
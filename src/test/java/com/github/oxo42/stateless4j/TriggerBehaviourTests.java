@@ -30,4 +30,13 @@ public class TriggerBehaviourTests {
 
         assertTrue(transtioning.isGuardConditionMet());
     }
+
+    @Test
+    public void WhenUnguarded_IsGuardConditionMetIsTrue() {
+        TransitioningTriggerBehaviour<State, Trigger> transtioning = new TransitioningTriggerBehaviour<>(
+                Trigger.X, State.C);
+
+        assertFalse(transtioning.isGuarded());
+        assertTrue(transtioning.isGuardConditionMet());
+    }
 }
@@ -0,0 +1,86 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TriggerLogReplayTests {
+
+    final AtomicInteger entries = new AtomicInteger();
+
+    StateMachineConfig<State, Trigger> config() {
+        StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        entries.incrementAndGet();
+                    }
+                })
+                .permit(Trigger.Y, State.C)
+                .permitReentry(Trigger.Z);
+        return config.toImmutable();
+    }
+
+    ReplaySummary<State> replay(int machineCount, boolean actions) {
+        StateMachineConfig<State, Trigger> config = config();
+        Map<Integer, StateMachine<State, Trigger>> machines = new TreeMap<>();
+        Map<Integer, List<Trigger>> log = new TreeMap<>();
+        for (int i = 0; i < machineCount; i++) {
+            machines.put(i, new StateMachine<>(State.A, config));
+            switch (i % 3) {
+                case 0:
+                    log.put(i, Arrays.asList(Trigger.X, Trigger.Z, Trigger.Y));
+                    break;
+                case 1:
+                    log.put(i, Collections.singletonList(Trigger.X));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        TriggerLogReplay<Integer, State, Trigger> replay = new TriggerLogReplay<>(machines, log);
+        if (!actions) {
+            replay.disableEntryAndExitActions();
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            return replay.replay(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void ReplaySummarisesFinalStatesAndTransitions() {
+        ReplaySummary<State> summary = replay(3000, true);
+
+        assertEquals(3000, summary.getMachineCount());
+        assertEquals(1000L, (long) summary.getFinalStateCounts().get(State.A));
+        assertEquals(1000L, (long) summary.getFinalStateCounts().get(State.B));
+        assertEquals(1000L, (long) summary.getFinalStateCounts().get(State.C));
+        assertEquals(4000, summary.getTriggerCount());
+        assertEquals(4000, summary.getTransitionCount());
+        assertEquals(3000, entries.get());
+    }
+
+    @Test
+    public void EntryAndExitActionsCanBeSkipped() {
+        ReplaySummary<State> summary = replay(300, false);
+
+        assertEquals(400, summary.getTransitionCount());
+        assertEquals(0, entries.get());
+    }
+}
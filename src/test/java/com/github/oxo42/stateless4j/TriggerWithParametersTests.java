@@ -44,4 +44,16 @@ public class TriggerWithParametersTests {
         TriggerWithParameters2<String, String, State, Trigger> twp = new TriggerWithParameters2<>(Trigger.X, String.class, String.class);
         twp.validateParameters(new Object[]{"a", "b", "c"});
     }
+
+    @Test(expected = IllegalStateException.class)
+    public void TooFewSeparateParametersDetected() {
+        TriggerWithParameters2<String, String, State, Trigger> twp = new TriggerWithParameters2<>(Trigger.X, String.class, String.class);
+        twp.validateParameters(1, "a", null, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void IncompatibleSeparateParametersAreNotValid() {
+        TriggerWithParameters2<String, String, State, Trigger> twp = new TriggerWithParameters2<>(Trigger.X, String.class, String.class);
+        twp.validateParameters(2, "a", 123, null);
+    }
 }
@@ -0,0 +1,73 @@
+package com.github.oxo42.stateless4j.load;
+
+import com.github.oxo42.stateless4j.StateConfiguration;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+
+/**
+ * Measures the heap used by a large configuration, per state and per edge, for a mutable configuration and for its
+ * immutable copy. Run its main method from the test classpath, optionally with the number of states (default 40000);
+ * heap measurements are only accurate with the default single collection and a quiet JVM.
+ */
+public final class FootprintReport {
+
+    private static final int TRIGGERS = 32;
+
+    public static void main(String[] args) throws InterruptedException {
+        int states = args.length > 0 ? Integer.parseInt(args[0]) : 40000;
+        String[] triggers = new String[TRIGGERS];
+        for (int i = 0; i < TRIGGERS; i++) {
+            triggers[i] = "trigger" + i;
+        }
+        Action action = new Action() {
+            @Override
+            public void doIt() {
+            }
+        };
+        FuncBoolean guard = new FuncBoolean() {
+            @Override
+            public boolean call() {
+                return true;
+            }
+        };
+
+        long before = usedHeap();
+        StateMachineConfig<Integer, String> config = new StateMachineConfig<>(states);
+        int edges = 0;
+        for (int i = 0; i < states; i++) {
+            StateConfiguration<Integer, String> state = config.configure(i)
+                    .permit(triggers[i % TRIGGERS], (i + 1) % states);
+            edges++;
+            if (i % 3 == 0) {
+                state.permitIf(triggers[(i + 1) % TRIGGERS], (i + 7) % states, guard);
+                edges++;
+            }
+            if (i % 5 == 0) {
+                state.onEntry(action);
+            }
+        }
+        long mutable = usedHeap() - before;
+        StateMachineConfig<Integer, String> immutable = config.toImmutable();
+        long copy = usedHeap() - before - mutable;
+
+        System.out.printf("states=%d edges=%d%n", states, edges);
+        System.out.printf("mutable:   %d bytes, %.1f bytes/state, %.1f bytes/edge%n", mutable,
+                (double) mutable / states, (double) mutable / edges);
+        System.out.printf("immutable: %d bytes, %.1f bytes/state, %.1f bytes/edge%n", copy,
+                (double) copy / states, (double) copy / edges);
+        // keep both reachable until measured
+        System.out.println(config.isMutable() != immutable.isMutable());
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
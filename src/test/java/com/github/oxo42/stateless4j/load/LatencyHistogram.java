@@ -0,0 +1,83 @@
+package com.github.oxo42.stateless4j.load;
+
+/**
+ * Histogram of latencies with a bounded relative error, in the style of HdrHistogram: values below 128 have their
+ * own bucket, and every higher power of two is split into 64 buckets, so a recorded value is off by less than 1%
+ * whatever its magnitude. Not thread safe; record on one thread per histogram and {@link #add} them afterwards.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 2) * HALF];
+    private long totalCount;
+    private long max;
+    private double sum;
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The highest value equivalent to the value at the percentile, or 0 if nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift + 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * HALF) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long subBucket = index % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
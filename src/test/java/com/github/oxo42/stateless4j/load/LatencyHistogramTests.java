@@ -0,0 +1,46 @@
+package com.github.oxo42.stateless4j.load;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void SmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void LargeValuesAreWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1000; value < 100000000000L; value = value * 3 / 2) {
+            histogram.record(value);
+            long recorded = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+            assertTrue(recorded >= value);
+            assertTrue(recorded - value <= value / 64);
+        }
+    }
+
+    @Test
+    public void HistogramsAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(1000000);
+        a.add(b);
+
+        assertEquals(3, a.getTotalCount());
+        assertEquals(1000000, a.getMax());
+        assertEquals(20, a.getValueAtPercentile(60));
+    }
+}
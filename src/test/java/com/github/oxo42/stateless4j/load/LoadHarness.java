@@ -0,0 +1,401 @@
+package com.github.oxo42.stateless4j.load;
+
+import com.github.oxo42.stateless4j.PassivationStore;
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.StateMachineRegistry;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.load.PhoneCallModel.State;
+import com.github.oxo42.stateless4j.load.PhoneCallModel.Trigger;
+import com.github.oxo42.stateless4j.reactive.Flow;
+import com.github.oxo42.stateless4j.reactive.TransitionProcessor;
+import com.github.oxo42.stateless4j.reactive.TriggerEvent;
+import com.github.oxo42.stateless4j.transitions.Transition;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives the phone call model with several threads over many machines, and reports throughput, latency percentiles
+ * and garbage collections, to compare releases and tuning modes on the same hardware. Run its main method from the
+ * test classpath with key=value arguments:
+ * <pre>
+ * mode=sync|registry|queued|reactive
+ *                           sync: each thread fires its own machines directly
+ *                           registry: threads fire random keys of a shared {@link StateMachineRegistry}
+ *                           queued: threads queue fires on single-threaded executor shards, latency includes
+ *                           queueing; this is not the library's reactive path
+ *                           reactive: each thread feeds trigger events to a {@link TransitionProcessor} per machine
+ *                           it owns, and requests the transitions from it in batches
+ * threads=4  machines=10000  seconds=10  warmup=3
+ * resident=N                registry mode: maximum resident machines, the others are passivated (default all)
+ * batch=16                  reactive mode: batch size of the processors, and of the transitions requested
+ * hierarchical=true  guarded=true
+ * mix=CallDialed:4,HungUp:1 weights of the triggers, drawn among those permitted in the current state (default 1)
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private final String mode;
+    private final int threads;
+    private final int machines;
+    private final int resident;
+    private final int batch;
+    private final PhoneCallModel model;
+    private final StateMachineConfig<State, Trigger> config;
+    private final AtomicLong unhandled = new AtomicLong();
+
+    private LoadHarness(Map<String, String> settings) {
+        mode = setting(settings, "mode", "sync");
+        threads = Integer.parseInt(setting(settings, "threads", "4"));
+        machines = Integer.parseInt(setting(settings, "machines", "10000"));
+        resident = Integer.parseInt(setting(settings, "resident", String.valueOf(machines)));
+        batch = Integer.parseInt(setting(settings, "batch", "16"));
+        Map<Trigger, Integer> weights = new EnumMap<>(Trigger.class);
+        String mix = setting(settings, "mix", "");
+        for (String entry : mix.isEmpty() ? new String[0] : mix.split(",")) {
+            String[] pair = entry.split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) {
+                throw new IllegalStateException("Weights must be positive: " + entry);
+            }
+            weights.put(Trigger.valueOf(pair[0].trim()), weight);
+        }
+        model = new PhoneCallModel(Boolean.parseBoolean(setting(settings, "hierarchical", "true")),
+                Boolean.parseBoolean(setting(settings, "guarded", "true")), weights);
+        config = model.getConfig().toImmutable();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalStateException("Arguments are key=value: " + arg);
+            }
+            settings.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        // the library logs each fire at info through slf4j-jdk14, which would dominate the measured latency
+        Logger.getLogger("com.github.oxo42.stateless4j").setLevel(Level.WARNING);
+        LoadHarness harness = new LoadHarness(settings);
+        long warmup = Long.parseLong(setting(settings, "warmup", "3"));
+        long seconds = Long.parseLong(setting(settings, "seconds", "10"));
+
+        System.out.printf("mode=%s threads=%d machines=%d resident=%d%n", harness.mode, harness.threads,
+                harness.machines, harness.resident);
+        harness.run(TimeUnit.SECONDS.toNanos(warmup));
+        harness.unhandled.set(0);
+
+        long collectionsBefore = collections(), gcMillisBefore = gcMillis();
+        long start = System.nanoTime();
+        LatencyHistogram latencies = harness.run(TimeUnit.SECONDS.toNanos(seconds));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("fires=%d throughput=%.0f/s unhandled=%d%n", latencies.getTotalCount(),
+                latencies.getTotalCount() / elapsed, harness.unhandled.get());
+        System.out.printf("latency ns: mean=%.0f p50=%d p99=%d p99.9=%d max=%d%n", latencies.getMean(),
+                latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(99),
+                latencies.getValueAtPercentile(99.9), latencies.getMax());
+        System.out.printf("gc: collections=%d time=%dms%n", collections() - collectionsBefore,
+                gcMillis() - gcMillisBefore);
+    }
+
+    private static String setting(Map<String, String> settings, String key, String defaultValue) {
+        String value = settings.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    private LatencyHistogram run(long durationNanos) throws Exception {
+        switch (mode) {
+            case "sync":
+                return runSync(durationNanos);
+            case "registry":
+                return runRegistry(durationNanos);
+            case "queued":
+                return runQueued(durationNanos);
+            case "reactive":
+                return runReactive(durationNanos);
+            default:
+                throw new IllegalStateException("Unknown mode: " + mode);
+        }
+    }
+
+    private StateMachine<State, Trigger> countUnhandled(StateMachine<State, Trigger> machine) {
+        machine.onUnhandledTrigger(new Action2<State, Trigger>() {
+            @Override
+            public void doIt(State state, Trigger trigger) {
+                unhandled.incrementAndGet();
+            }
+        });
+        return machine;
+    }
+
+    /**
+     * Each thread owns a slice of the machines
+     */
+    private LatencyHistogram runSync(final long durationNanos) throws Exception {
+        final int perThread = Math.max(1, machines / threads);
+        return runWorkers(new Callable<LatencyHistogram>() {
+            @Override
+            public LatencyHistogram call() {
+                List<StateMachine<State, Trigger>> own = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    own.add(countUnhandled(new StateMachine<>(State.OffHook, config)));
+                }
+                LatencyHistogram histogram = new LatencyHistogram();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long deadline = System.nanoTime() + durationNanos;
+                for (;;) {
+                    StateMachine<State, Trigger> machine = own.get(random.nextInt(perThread));
+                    Trigger trigger = model.nextTrigger(machine.getState());
+                    long start = System.nanoTime();
+                    if (start >= deadline) {
+                        return histogram;
+                    }
+                    machine.fire(trigger);
+                    histogram.record(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * All threads fire random keys; two threads may race for a key, so a drawn trigger may have become unhandled
+     */
+    private LatencyHistogram runRegistry(final long durationNanos) throws Exception {
+        final StateMachineRegistry<Integer, State, Trigger> registry = new StateMachineRegistry<Integer, State, Trigger>(
+                config, State.OffHook, new MemoryStore(), resident, 1, TimeUnit.HOURS) {
+            @Override
+            protected StateMachine<State, Trigger> createMachine(Integer key, State state, boolean rehydrated) {
+                return countUnhandled(super.createMachine(key, state, rehydrated));
+            }
+        };
+        return runWorkers(new Callable<LatencyHistogram>() {
+            @Override
+            public LatencyHistogram call() {
+                LatencyHistogram histogram = new LatencyHistogram();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long deadline = System.nanoTime() + durationNanos;
+                for (;;) {
+                    Integer key = random.nextInt(machines);
+                    Trigger trigger = model.nextTrigger(registry.getState(key));
+                    long start = System.nanoTime();
+                    if (start >= deadline) {
+                        return histogram;
+                    }
+                    registry.fire(key, trigger);
+                    histogram.record(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Producers queue fires for random machines on the shard owning them; each shard fires on its own thread and
+     * records the time from queueing to the end of the fire. Outstanding fires are bounded per producer.
+     */
+    private LatencyHistogram runQueued(final long durationNanos) throws Exception {
+        final int shards = threads;
+        final ExecutorService[] executors = new ExecutorService[shards];
+        final LatencyHistogram[] histograms = new LatencyHistogram[shards];
+        final List<StateMachine<State, Trigger>> all = new ArrayList<>(machines);
+        for (int i = 0; i < shards; i++) {
+            executors[i] = Executors.newSingleThreadExecutor();
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < machines; i++) {
+            all.add(countUnhandled(new StateMachine<>(State.OffHook, config)));
+        }
+        try {
+            runWorkers(new Callable<LatencyHistogram>() {
+                @Override
+                public LatencyHistogram call() throws InterruptedException {
+                    final Semaphore outstanding = new Semaphore(1024);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long deadline = System.nanoTime() + durationNanos;
+                    while (System.nanoTime() < deadline) {
+                        final int index = random.nextInt(machines);
+                        final int shard = index % shards;
+                        final long queued = System.nanoTime();
+                        outstanding.acquire();
+                        executors[shard].execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                StateMachine<State, Trigger> machine = all.get(index);
+                                try {
+                                    // the trigger depends on the state when the fire runs, so drawing it is not timed
+                                    long drawStart = System.nanoTime();
+                                    Trigger trigger = model.nextTrigger(machine.getState());
+                                    long drawn = System.nanoTime() - drawStart;
+                                    machine.fire(trigger);
+                                    histograms[shard].record(System.nanoTime() - queued - drawn);
+                                } finally {
+                                    outstanding.release();
+                                }
+                            }
+                        });
+                    }
+                    outstanding.acquire(1024);
+                    return new LatencyHistogram();
+                }
+            });
+        } finally {
+            for (ExecutorService executor : executors) {
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        }
+        LatencyHistogram total = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            total.add(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * Each thread owns a slice of the machines, each behind its own processor, and acts as the upstream publisher of
+     * all of them: it only sends a machine a trigger event while its processor has requested one. The processor fires
+     * on the sending thread while the transitions are requested, so the latency is that of sending one event.
+     */
+    private LatencyHistogram runReactive(final long durationNanos) throws Exception {
+        final int perThread = Math.max(1, machines / threads);
+        return runWorkers(new Callable<LatencyHistogram>() {
+            @Override
+            public LatencyHistogram call() {
+                List<ReactiveLane> own = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    own.add(new ReactiveLane(countUnhandled(new StateMachine<>(State.OffHook, config)), batch));
+                }
+                LatencyHistogram histogram = new LatencyHistogram();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long deadline = System.nanoTime() + durationNanos;
+                for (;;) {
+                    ReactiveLane lane = own.get(random.nextInt(perThread));
+                    if (lane.error != null) {
+                        throw new IllegalStateException("A transition processor failed", lane.error);
+                    }
+                    if (lane.credit == 0) {
+                        throw new IllegalStateException("A transition processor stopped requesting triggers");
+                    }
+                    TriggerEvent<Trigger> event = new TriggerEvent<>(model.nextTrigger(lane.machine.getState()));
+                    long start = System.nanoTime();
+                    if (start >= deadline) {
+                        return histogram;
+                    }
+                    lane.credit--;
+                    lane.processor.onNext(event);
+                    histogram.record(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    private LatencyHistogram runWorkers(Callable<LatencyHistogram> worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<LatencyHistogram>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(worker));
+            }
+            LatencyHistogram total = new LatencyHistogram();
+            for (Future<LatencyHistogram> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * A machine behind its processor, with the subscription given to the processor upstream and the subscriber of its
+     * transitions downstream. Only used by the thread that owns it.
+     */
+    private static final class ReactiveLane implements Flow.Subscription, Flow.Subscriber<Transition<State, Trigger>> {
+
+        private final StateMachine<State, Trigger> machine;
+        private final TransitionProcessor<State, Trigger> processor;
+        private final int batch;
+        private Flow.Subscription transitions;
+        private long credit;
+        private int received;
+        private Throwable error;
+
+        ReactiveLane(StateMachine<State, Trigger> machine, int batch) {
+            this.machine = machine;
+            this.batch = batch;
+            processor = new TransitionProcessor<>(machine, batch);
+            processor.subscribe(this);
+            processor.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            credit += n;
+        }
+
+        @Override
+        public void cancel() {
+            credit = 0;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            transitions = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(Transition<State, Trigger> item) {
+            if (++received == batch) {
+                received = 0;
+                transitions.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static final class MemoryStore implements PassivationStore<Integer, State> {
+
+        private final ConcurrentHashMap<Integer, State> states = new ConcurrentHashMap<>();
+
+        @Override
+        public State load(Integer key) {
+            return states.get(key);
+        }
+
+        @Override
+        public void save(Integer key, State state) {
+            states.put(key, state);
+        }
+    }
+}
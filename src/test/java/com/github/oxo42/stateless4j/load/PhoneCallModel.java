@@ -0,0 +1,126 @@
+package com.github.oxo42.stateless4j.load;
+
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.delegates.Action;
+import com.github.oxo42.stateless4j.delegates.FuncBoolean;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The phone call from the examples, scaled up to a workload: triggers are drawn by weight from those permitted in
+ * the current state, so machines keep moving instead of mostly rejecting triggers
+ */
+final class PhoneCallModel {
+
+    enum State {
+        OffHook, Ringing, Connected, OnHold
+    }
+
+    enum Trigger {
+        CallDialed, CallConnected, LeftMessage, PlacedOnHold, TakenOffHold, HungUp
+    }
+
+    final AtomicLong callTimerStarts = new AtomicLong();
+    // decided when CallConnected is drawn, so that both guards see the same line
+    private final ThreadLocal<boolean[]> lineFreeOnThisThread = new ThreadLocal<boolean[]>() {
+        @Override
+        protected boolean[] initialValue() {
+            return new boolean[1];
+        }
+    };
+    private final StateMachineConfig<State, Trigger> config = new StateMachineConfig<>();
+    private final Map<State, Trigger[]> triggersByState = new EnumMap<>(State.class);
+    private final Map<State, int[]> cumulativeWeightsByState = new EnumMap<>(State.class);
+
+    /**
+     * @param hierarchical Whether OnHold is a substate of Connected, so HungUp is handled by the superstate
+     * @param guarded      Whether CallConnected is decided by mutually exclusive guards
+     * @param weights      The weight of each trigger, where permitted
+     */
+    PhoneCallModel(boolean hierarchical, boolean guarded, Map<Trigger, Integer> weights) {
+        FuncBoolean lineFree = new FuncBoolean() {
+            @Override
+            public boolean call() {
+                return lineFreeOnThisThread.get()[0];
+            }
+        };
+        FuncBoolean lineBusy = new FuncBoolean() {
+            @Override
+            public boolean call() {
+                return !lineFreeOnThisThread.get()[0];
+            }
+        };
+
+        config.configure(State.OffHook)
+                .permit(Trigger.CallDialed, State.Ringing);
+        if (guarded) {
+            config.configure(State.Ringing)
+                    .permit(Trigger.HungUp, State.OffHook)
+                    .permitIf(Trigger.CallConnected, State.Connected, lineFree)
+                    .permitIf(Trigger.CallConnected, State.OffHook, lineBusy);
+        } else {
+            config.configure(State.Ringing)
+                    .permit(Trigger.HungUp, State.OffHook)
+                    .permit(Trigger.CallConnected, State.Connected);
+        }
+        config.configure(State.Connected)
+                .onEntry(new Action() {
+                    @Override
+                    public void doIt() {
+                        callTimerStarts.incrementAndGet();
+                    }
+                })
+                .permit(Trigger.LeftMessage, State.OffHook)
+                .permit(Trigger.HungUp, State.OffHook)
+                .permit(Trigger.PlacedOnHold, State.OnHold);
+        if (hierarchical) {
+            config.configure(State.OnHold)
+                    .substateOf(State.Connected)
+                    .permit(Trigger.TakenOffHold, State.Connected);
+        } else {
+            config.configure(State.OnHold)
+                    .permit(Trigger.TakenOffHold, State.Connected)
+                    .permit(Trigger.HungUp, State.OffHook);
+        }
+
+        for (State state : State.values()) {
+            List<Trigger> permitted = config.getRepresentation(state).getPermittedTriggers();
+            Trigger[] triggers = permitted.toArray(new Trigger[permitted.size()]);
+            int[] cumulative = new int[triggers.length];
+            int total = 0;
+            for (int i = 0; i < triggers.length; i++) {
+                Integer weight = weights.get(triggers[i]);
+                total += weight == null ? 1 : weight;
+                cumulative[i] = total;
+            }
+            triggersByState.put(state, triggers);
+            cumulativeWeightsByState.put(state, cumulative);
+        }
+    }
+
+    StateMachineConfig<State, Trigger> getConfig() {
+        return config;
+    }
+
+    /**
+     * Draw the next trigger to fire on this thread
+     */
+    Trigger nextTrigger(State state) {
+        Trigger[] triggers = triggersByState.get(state);
+        int[] cumulative = cumulativeWeightsByState.get(state);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; ; i++) {
+            if (pick < cumulative[i]) {
+                if (triggers[i] == Trigger.CallConnected) {
+                    lineFreeOnThisThread.get()[0] = random.nextInt(8) != 0;
+                }
+                return triggers[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.oxo42.stateless4j.persistence;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindStateStoreTests {
+
+    enum Session {
+        Open, Active, Closed
+    }
+
+    enum Event {
+        Start, Stop, Reopen
+    }
+
+    final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    final List<Map<String, Session>> batches = new ArrayList<>();
+    boolean failing;
+
+    final StateSink<String, Session> sink = new StateSink<String, Session>() {
+        @Override
+        public synchronized void write(Map<String, Session> states) throws IOException {
+            if (failing) {
+                throw new IOException("sink is down");
+            }
+            batches.add(new HashMap<>(states));
+        }
+    };
+
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    StateMachineConfig<Session, Event> config() {
+        StateMachineConfig<Session, Event> config = new StateMachineConfig<>();
+        config.configure(Session.Open)
+                .permit(Event.Start, Session.Active);
+        config.configure(Session.Active)
+                .permit(Event.Stop, Session.Closed);
+        config.configure(Session.Closed)
+                .permit(Event.Reopen, Session.Open);
+        return config;
+    }
+
+    @Test
+    public void RepeatedWritesAreCoalesced() throws IOException {
+        WriteBehindStateStore<String, Session> store = new WriteBehindStateStore<>(sink, 10, 1, TimeUnit.HOURS, scheduler);
+        StateBinding<String, Session> binding = store.bind("s1", Session.Open);
+        StateMachine<Session, Event> sm = new StateMachine<>(Session.Open, binding, binding, config());
+        sm.fire(Event.Start);
+        sm.fire(Event.Stop);
+
+        assertTrue(batches.isEmpty());
+        assertEquals(1, store.getPending());
+
+        store.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(Session.Closed, batches.get(0).get("s1"));
+        WriteBehindMetrics metrics = store.getMetrics();
+        assertEquals(3, metrics.getWrites());
+        assertEquals(2, metrics.getCoalescedWrites());
+        assertEquals(1, metrics.getFlushedStates());
+        assertEquals(0, metrics.getPending());
+    }
+
+    @Test
+    public void FullBatchIsFlushedOnTheScheduler() throws Exception {
+        WriteBehindStateStore<String, Session> store = new WriteBehindStateStore<>(sink, 4, 1, TimeUnit.HOURS, scheduler);
+        for (int i = 0; i < 4; i++) {
+            store.bind("s" + i, Session.Open).doIt(Session.Active);
+        }
+        scheduler.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+
+        assertEquals(0, store.getPending());
+        assertEquals(1, store.getMetrics().getFlushes());
+    }
+
+    @Test
+    public void FailedBatchStaysPending() throws IOException {
+        WriteBehindStateStore<String, Session> store = new WriteBehindStateStore<>(sink, 10, 1, TimeUnit.HOURS, scheduler);
+        store.bind("s1", Session.Open).doIt(Session.Active);
+        failing = true;
+        try {
+            store.flush();
+            fail();
+        } catch (IOException e) {
+            assertEquals(1, store.getPending());
+            assertEquals(1, store.getMetrics().getFailedFlushes());
+        }
+
+        failing = false;
+        store.close();
+
+        assertEquals(0, store.getPending());
+        assertEquals(Session.Active, batches.get(0).get("s1"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ClosedStoreRejectsWrites() throws IOException {
+        WriteBehindStateStore<String, Session> store = new WriteBehindStateStore<>(sink, 10, 1, TimeUnit.HOURS, scheduler);
+        StateBinding<String, Session> binding = store.bind("s1", Session.Open);
+        store.close();
+        binding.doIt(Session.Active);
+    }
+
+    @Test
+    public void AppendOnlyFileSinkAppendsLines() throws IOException {
+        File file = File.createTempFile("states", ".tsv");
+        file.deleteOnExit();
+        try (AppendOnlyFileSink<String, Session> fileSink = new AppendOnlyFileSink<>(file, true)) {
+            Map<String, Session> batch = new HashMap<>();
+            batch.put("s1", Session.Active);
+            fileSink.write(batch);
+            batch.put("s1", Session.Closed);
+            fileSink.write(batch);
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        assertEquals(2, lines.size());
+        assertEquals("s1\tActive", lines.get(0));
+        assertEquals("s1\tClosed", lines.get(1));
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpscArrayQueueTests {
+
+    @Test
+    public void CapacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new SpscArrayQueue<Integer>(5).capacity());
+        assertEquals(8, new SpscArrayQueue<Integer>(8).capacity());
+    }
+
+    @Test
+    public void ElementsArePolledInOrderAcrossTheEndOfTheArray() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(4);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(i));
+            assertTrue(queue.offer(i + 100));
+            assertEquals(Integer.valueOf(i), queue.poll());
+            assertEquals(Integer.valueOf(i + 100), queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void OfferFailsWhenFull() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.offer(3));
+        assertEquals(Integer.valueOf(3), queue.poll());
+    }
+}
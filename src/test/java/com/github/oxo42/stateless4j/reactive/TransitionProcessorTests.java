@@ -0,0 +1,210 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransitionProcessorTests {
+
+    enum Light {
+        Off, On
+    }
+
+    enum Switch {
+        Toggle, Dim
+    }
+
+    final List<Long> upstreamRequests = new ArrayList<>();
+    final List<Transition<Light, Switch>> received = new ArrayList<>();
+    Throwable failure;
+    boolean completed;
+    Flow.Subscription subscription;
+
+    StateMachine<Light, Switch> lamp() {
+        StateMachineConfig<Light, Switch> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Switch.Dim, Integer.class);
+        config.configure(Light.Off)
+                .permit(Switch.Toggle, Light.On);
+        config.configure(Light.On)
+                .permit(Switch.Toggle, Light.Off)
+                .permitReentry(Switch.Dim);
+        return new StateMachine<>(Light.Off, config);
+    }
+
+    /**
+     * Publishes the events synchronously, never more than requested
+     */
+    Flow.Publisher<TriggerEvent<Switch>> publisher(final List<TriggerEvent<Switch>> events) {
+        return new Flow.Publisher<TriggerEvent<Switch>>() {
+            @Override
+            public void subscribe(final Flow.Subscriber<? super TriggerEvent<Switch>> subscriber) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    int next;
+                    boolean emitting;
+                    long demand;
+
+                    @Override
+                    public void request(long n) {
+                        upstreamRequests.add(n);
+                        demand += n;
+                        if (emitting) {
+                            return;
+                        }
+                        emitting = true;
+                        while (demand > 0 && next < events.size()) {
+                            demand--;
+                            subscriber.onNext(events.get(next++));
+                        }
+                        if (next == events.size()) {
+                            next++;
+                            subscriber.onComplete();
+                        }
+                        emitting = false;
+                    }
+
+                    @Override
+                    public void cancel() {
+                        next = events.size() + 1;
+                    }
+                });
+            }
+        };
+    }
+
+    Flow.Subscriber<Transition<Light, Switch>> subscriber() {
+        return new Flow.Subscriber<Transition<Light, Switch>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+            }
+
+            @Override
+            public void onNext(Transition<Light, Switch> item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure = throwable;
+            }
+
+            @Override
+            public void onComplete() {
+                completed = true;
+            }
+        };
+    }
+
+    List<TriggerEvent<Switch>> toggles(int count) {
+        List<TriggerEvent<Switch>> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new TriggerEvent<>(Switch.Toggle));
+        }
+        return events;
+    }
+
+    @Test
+    public void TransitionsAreEmittedOnlyAsRequested() {
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp(), 4);
+        processor.subscribe(subscriber());
+        publisher(toggles(20)).subscribe(processor);
+
+        assertTrue(received.isEmpty());
+        subscription.request(3);
+        assertEquals(3, received.size());
+        assertEquals(Light.On, received.get(2).getDestination());
+
+        subscription.request(100);
+        assertEquals(20, received.size());
+        assertTrue(completed);
+        assertNull(failure);
+    }
+
+    @Test
+    public void UpstreamIsRequestedInBatches() {
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp(), 4);
+        processor.subscribe(subscriber());
+        publisher(toggles(20)).subscribe(processor);
+        subscription.request(Long.MAX_VALUE);
+
+        assertEquals(8L, (long) upstreamRequests.get(0));
+        for (int i = 1; i < upstreamRequests.size(); i++) {
+            assertEquals(4L, (long) upstreamRequests.get(i));
+        }
+        assertEquals(20, received.size());
+    }
+
+    @Test
+    public void TriggerArgumentsArePassedOn() {
+        StateMachine<Light, Switch> lamp = lamp();
+        TriggerWithParameters1<Integer, Light, Switch> dim = (TriggerWithParameters1<Integer, Light, Switch>) lamp.configuration().getTriggerConfiguration(Switch.Dim);
+        List<TriggerEvent<Switch>> events = toggles(1);
+        events.add(new TriggerEvent<>(dim.getTrigger(), 50));
+
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp, 4);
+        processor.subscribe(subscriber());
+        publisher(events).subscribe(processor);
+        subscription.request(10);
+
+        assertEquals(2, received.size());
+        assertTrue(received.get(1).isReentry());
+        assertTrue(completed);
+    }
+
+    @Test
+    public void OnlyTransitionsOfItsOwnTriggersArePublished() {
+        StateMachine<Light, Switch> lamp = lamp();
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp, 4);
+        lamp.fire(Switch.Toggle);
+
+        processor.subscribe(subscriber());
+        publisher(toggles(1)).subscribe(processor);
+        subscription.request(10);
+        lamp.fire(Switch.Toggle);
+
+        assertEquals(1, received.size());
+        assertEquals(Light.Off, received.get(0).getDestination());
+        assertTrue(completed);
+    }
+
+    @Test
+    public void UnhandledTriggerIsSignalledAsError() {
+        List<TriggerEvent<Switch>> events = new ArrayList<>();
+        events.add(new TriggerEvent<>(Switch.Dim, 50));
+        events.addAll(toggles(3));
+
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp(), 4);
+        processor.subscribe(subscriber());
+        publisher(events).subscribe(processor);
+        subscription.request(10);
+
+        assertTrue(failure instanceof IllegalStateException);
+        assertTrue(received.isEmpty());
+        assertFalse(completed);
+    }
+
+    @Test
+    public void NonPositiveRequestIsSignalledAsError() {
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp(), 4);
+        processor.subscribe(subscriber());
+        subscription.request(0);
+
+        assertTrue(failure instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void SecondSubscriberIsRejected() {
+        TransitionProcessor<Light, Switch> processor = new TransitionProcessor<>(lamp(), 4);
+        processor.subscribe(subscriber());
+        processor.subscribe(subscriber());
+
+        assertTrue(failure instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TransitionRingBufferTests {
+
+    enum Light {
+        Off, On
+    }
+
+    enum Switch {
+        Toggle, Dim
+    }
+
+    final StateMachineConfig<Light, Switch> config = new StateMachineConfig<>();
+    final TriggerWithParameters1<Integer, Light, Switch> dim = config.setTriggerParameters(Switch.Dim, Integer.class);
+
+    {
+        config.configure(Light.Off)
+                .permit(Switch.Toggle, Light.On);
+        config.configure(Light.On)
+                .permit(Switch.Toggle, Light.Off)
+                .permitReentry(Switch.Dim);
+    }
+
+    @Test
+    public void ReaderSeesTransitionsPublishedAfterItWasAdded() {
+        TransitionRingBuffer<Light, Switch> ring = new TransitionRingBuffer<>(4, WaitStrategy.busySpin());
+        StateMachine<Light, Switch> lamp = new StateMachine<>(Light.Off, config);
+        lamp.publishTransitions(ring);
+        lamp.fire(Switch.Toggle);
+
+        TransitionRingBuffer.Reader<Light, Switch> reader = ring.addReader();
+        lamp.fire(dim, 40);
+        lamp.fire(Switch.Toggle);
+        assertEquals(2, reader.getLag());
+
+        final List<String> read = new ArrayList<>();
+        int handled = reader.poll(new Action1<TransitionEvent<Light, Switch>>() {
+            @Override
+            public void doIt(TransitionEvent<Light, Switch> event) {
+                read.add(event.getSequence() + " " + event.getSource() + " " + event.getTrigger() + " "
+                        + event.getDestination() + " " + event.getArgumentCount());
+            }
+        });
+
+        assertEquals(2, handled);
+        assertEquals("1 On Dim On 1", read.get(0));
+        assertEquals("2 On Toggle Off 0", read.get(1));
+        assertEquals(0, reader.getLag());
+        assertEquals(3, ring.getPublishedCount());
+    }
+
+    @Test
+    public void EventsCarryTheMachineAndArguments() {
+        TransitionRingBuffer<Light, Switch> ring = new TransitionRingBuffer<>(4, WaitStrategy.busySpin());
+        StateMachine<Light, Switch> lamp = new StateMachine<>(Light.On, config);
+        lamp.publishTransitions(ring);
+        TransitionRingBuffer.Reader<Light, Switch> reader = ring.addReader();
+        lamp.fire(dim, 40);
+
+        final AtomicReference<Object[]> arguments = new AtomicReference<>();
+        final AtomicReference<StateMachine<Light, Switch>> machine = new AtomicReference<>();
+        reader.poll(new Action1<TransitionEvent<Light, Switch>>() {
+            @Override
+            public void doIt(TransitionEvent<Light, Switch> event) {
+                arguments.set(event.getArguments());
+                machine.set(event.getMachine());
+                assertEquals(40, event.getArgument(0));
+            }
+        });
+
+        assertArrayEquals(new Object[]{40}, arguments.get());
+        assertSame(lamp, machine.get());
+    }
+
+    @Test
+    public void PublishersWaitForSlowReaders() throws Exception {
+        final TransitionRingBuffer<Light, Switch> ring = new TransitionRingBuffer<>(8, WaitStrategy.blocking());
+        final TransitionRingBuffer.Reader<Light, Switch> reader = ring.addReader();
+        final int transitions = 10000;
+        final long[] expected = new long[1];
+        final Throwable[] failure = new Throwable[1];
+        Thread readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (expected[0] < transitions) {
+                        reader.take(new Action1<TransitionEvent<Light, Switch>>() {
+                            @Override
+                            public void doIt(TransitionEvent<Light, Switch> event) {
+                                assertEquals(expected[0]++, event.getSequence());
+                                assertEquals(event.getSequence() % 2 == 0 ? Light.On : Light.Off, event.getDestination());
+                            }
+                        }, 10, TimeUnit.SECONDS);
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        readerThread.start();
+
+        StateMachine<Light, Switch> lamp = new StateMachine<>(Light.Off, config);
+        lamp.publishTransitions(ring);
+        for (int i = 0; i < transitions; i++) {
+            lamp.fire(Switch.Toggle);
+        }
+        readerThread.join(30000);
+
+        assertNull(failure[0]);
+        assertEquals(transitions, expected[0]);
+        assertEquals(0, reader.getLag());
+    }
+
+    @Test
+    public void ClosedReadersNoLongerHoldBackPublishers() {
+        TransitionRingBuffer<Light, Switch> ring = new TransitionRingBuffer<>(2, WaitStrategy.yielding());
+        TransitionRingBuffer.Reader<Light, Switch> reader = ring.addReader();
+        reader.close();
+        StateMachine<Light, Switch> lamp = new StateMachine<>(Light.Off, config);
+        lamp.publishTransitions(ring);
+        for (int i = 0; i < 10; i++) {
+            lamp.fire(Switch.Toggle);
+        }
+
+        assertEquals(10, ring.getPublishedCount());
+        assertEquals(0, ring.getFullWaitCount());
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.oxo42.stateless4j.timers;
+
+import com.github.oxo42.stateless4j.delegates.Action;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTests {
+
+    long now = 0;
+    final List<Integer> expired = new ArrayList<>();
+
+    final Clock clock = new Clock() {
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    };
+
+    Action record(final int id) {
+        return new Action() {
+            @Override
+            public void doIt() {
+                expired.add(id);
+            }
+        };
+    }
+
+    void advanceMillis(TimerWheel wheel, long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+        wheel.advance();
+    }
+
+    @Test
+    public void TimeoutExpiresOnceDeadlineHasPassed() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        wheel.schedule(record(1), 10, TimeUnit.MILLISECONDS);
+
+        advanceMillis(wheel, 9);
+        assertTrue(expired.isEmpty());
+
+        advanceMillis(wheel, 1);
+        assertEquals(1, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void CancelledTimeoutDoesNotExpire() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        Timeout timeout = wheel.schedule(record(1), 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.isPending());
+        assertFalse(timeout.cancel());
+
+        advanceMillis(wheel, 20);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void TimeoutsBeyondTheRootWheelAreCascaded() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        wheel.schedule(record(3), 1000000, TimeUnit.MILLISECONDS);
+        wheel.schedule(record(2), 20000, TimeUnit.MILLISECONDS);
+        wheel.schedule(record(1), 300, TimeUnit.MILLISECONDS);
+
+        advanceMillis(wheel, 299);
+        assertTrue(expired.isEmpty());
+        advanceMillis(wheel, 1);
+        assertEquals(1, (int) expired.get(0));
+
+        advanceMillis(wheel, 19699);
+        assertEquals(1, expired.size());
+        advanceMillis(wheel, 1);
+        assertEquals(2, (int) expired.get(1));
+
+        for (int i = 0; i < 979; i++) {
+            advanceMillis(wheel, 1000);
+        }
+        assertEquals(2, expired.size());
+        advanceMillis(wheel, 1000);
+        assertEquals(3, (int) expired.get(2));
+    }
+
+    @Test
+    public void TimeoutsExpireInDeadlineOrder() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        for (int i = 50; i > 0; i--) {
+            wheel.schedule(record(i), i * 37, TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < 50 * 37; i++) {
+            advanceMillis(wheel, 1);
+        }
+
+        assertEquals(50, expired.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1, (int) expired.get(i));
+        }
+    }
+
+    @Test
+    public void AdvancingOverManyTicksExpiresEverythingDue() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        for (int i = 1; i <= 1000; i++) {
+            wheel.schedule(record(i), i * 7, TimeUnit.MILLISECONDS);
+        }
+
+        advanceMillis(wheel, 3500);
+
+        assertEquals(500, expired.size());
+        assertEquals(500, wheel.size());
+    }
+
+    @Test
+    public void ThrowingTimeoutDoesNotHoldBackTheOthersDue() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        wheel.schedule(record(1), 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(new Action() {
+            @Override
+            public void doIt() {
+                throw new IllegalStateException("first");
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(record(2), 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(new Action() {
+            @Override
+            public void doIt() {
+                throw new IllegalStateException("second");
+            }
+        }, 11, TimeUnit.MILLISECONDS);
+        wheel.schedule(record(3), 11, TimeUnit.MILLISECONDS);
+
+        try {
+            advanceMillis(wheel, 11);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("first", e.getMessage());
+            assertEquals("second", e.getSuppressed()[0].getMessage());
+        }
+        assertEquals(3, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void TimeoutCanCancelAnotherDueInTheSameTick() {
+        final TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        final Timeout[] second = new Timeout[1];
+        wheel.schedule(new Action() {
+            @Override
+            public void doIt() {
+                assertTrue(second[0].cancel());
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        second[0] = wheel.schedule(record(2), 10, TimeUnit.MILLISECONDS);
+
+        advanceMillis(wheel, 10);
+
+        assertTrue(expired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void PendingTimeoutCannotBeScheduledTwice() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, clock);
+        Timeout timeout = wheel.schedule(record(1), 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(timeout, 10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.oxo42.stateless4j.reactive.jdk;
+
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateMachineConfig;
+import com.github.oxo42.stateless4j.reactive.Flow;
+import com.github.oxo42.stateless4j.reactive.TransitionProcessor;
+import com.github.oxo42.stateless4j.reactive.TriggerEvent;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FlowAdaptersTests {
+
+    enum Light {
+        Off, On
+    }
+
+    enum Switch {
+        Toggle
+    }
+
+    final List<Object> signals = new ArrayList<>();
+
+    StateMachine<Light, Switch> lamp() {
+        StateMachineConfig<Light, Switch> config = new StateMachineConfig<>();
+        config.configure(Light.Off)
+                .permit(Switch.Toggle, Light.On);
+        config.configure(Light.On)
+                .permit(Switch.Toggle, Light.Off);
+        return new StateMachine<>(Light.Off, config);
+    }
+
+    @Test
+    public void TransitionProcessorIsConnectedToJdkPublishersAndSubscribers() throws InterruptedException {
+        final List<Transition<Light, Switch>> received = new ArrayList<>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SubmissionPublisher<TriggerEvent<Switch>> source = new SubmissionPublisher<>(executor, 4)) {
+            java.util.concurrent.Flow.Processor<TriggerEvent<Switch>, Transition<Light, Switch>> processor =
+                    FlowAdapters.toFlowProcessor(new TransitionProcessor<>(lamp(), 2));
+            processor.subscribe(new java.util.concurrent.Flow.Subscriber<Transition<Light, Switch>>() {
+                @Override
+                public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Transition<Light, Switch> item) {
+                    received.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    signals.add(throwable);
+                    terminated.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    terminated.countDown();
+                }
+            });
+            source.subscribe(processor);
+            for (int i = 0; i < 5; i++) {
+                source.submit(new TriggerEvent<>(Switch.Toggle));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(terminated.await(10, TimeUnit.SECONDS));
+        assertTrue(signals.isEmpty());
+        assertEquals(5, received.size());
+        assertEquals(Light.On, received.get(4).getDestination());
+    }
+
+    @Test
+    public void RequestsAndCancellationArePassedBackToTheJdkPublisher() {
+        java.util.concurrent.Flow.Publisher<String> jdkPublisher = new java.util.concurrent.Flow.Publisher<String>() {
+            @Override
+            public void subscribe(final java.util.concurrent.Flow.Subscriber<? super String> subscriber) {
+                subscriber.onSubscribe(new java.util.concurrent.Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        signals.add("request " + n);
+                        subscriber.onNext("item");
+                    }
+
+                    @Override
+                    public void cancel() {
+                        signals.add("cancel");
+                    }
+                });
+            }
+        };
+
+        // round trip through both adapters, so that every wrapper class passes the signals on
+        Flow.Publisher<String> publisher = FlowAdapters.fromFlowPublisher(
+                FlowAdapters.toFlowPublisher(FlowAdapters.fromFlowPublisher(jdkPublisher)));
+        publisher.subscribe(new Flow.Subscriber<String>() {
+            Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(3);
+            }
+
+            @Override
+            public void onNext(String item) {
+                signals.add(item);
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        assertEquals(3, signals.size());
+        assertEquals("request 3", signals.get(0));
+        assertEquals("item", signals.get(1));
+        assertEquals("cancel", signals.get(2));
+    }
+}